@@ -0,0 +1,161 @@
+/*************************************************************************
+ *  Compilation:  javac ALTSP.java
+ *  Execution:    java ALTSP
+ *  Dependencies: EdgeWeightedDigraph.java CSRDigraph.java Landmarks.java
+ *                PointToPointSP.java DoubleIndexMinPQ.java Path.java
+ *                PathEngine.java Stack.java DirectedEdge.java
+ *
+ *  Goal-directed point-to-point shortest paths with A* search and
+ *  landmark lower bounds. Assumes all weights are nonnegative.
+ *
+ *************************************************************************/
+
+import java.util.Arrays;
+
+/**
+ *  The <tt>ALTSP</tt> class answers s->t shortest path queries with A*
+ *  search, using the landmark bounds of a <tt>Landmarks</tt> table as the
+ *  potential h(v) &le; d(v,t). The bounds are consistent, so each vertex is
+ *  settled once and the search stops as soon as t is settled; because the
+ *  keys favour vertices that lie towards t, it settles far fewer vertices
+ *  than plain Dijkstra, which explores a ball around s.
+ *  <p>
+ *  The tables describe the graph as it was when they were computed. Once
+ *  <tt>G.version()</tt> shows that an edge was changed or a vertex taken
+ *  down or restored, queries fall back to exact Dijkstra
+ *  (<tt>PointToPointSP</tt>), and the tables for the same landmarks are
+ *  recomputed on a background thread from a frozen copy of the graph. A*
+ *  resumes once tables for the current version are ready.
+ */
+public class ALTSP implements PathEngine {
+    private final EdgeWeightedDigraph G;
+    private final PointToPointSP exact;     // used while the tables are stale
+    private volatile Tables tables;         // the tables and the graph version they describe
+    private volatile boolean refreshing;    // is a background refresh running?
+
+    private final double[] distTo;          // distTo[v] = distance of shortest s->v path found so far
+    private final DirectedEdge[] edgeTo;    // edgeTo[v] = last edge on that path
+    private final double[] bound;           // bound[v] = landmark lower bound on d(v,t)
+    private final int[] visited;            // entries are valid iff visited[v] == query
+    private final DoubleIndexMinPQ pq;      // vertices keyed by distTo[v] + bound[v]
+    private int query;
+
+    // landmark tables together with the version of G they were computed for
+    private static class Tables {
+        final Landmarks landmarks;
+        final int version;
+
+        Tables(Landmarks landmarks, int version) {
+            this.landmarks = landmarks;
+            this.version = version;
+        }
+    }
+
+   /**
+     * Create an engine for G from landmark tables computed for its current edges.
+     * @throws java.lang.IllegalArgumentException if the tables describe another graph
+     */
+    public ALTSP(EdgeWeightedDigraph G, Landmarks landmarks) {
+        if (!landmarks.describes(new CSRDigraph(G)))
+            throw new IllegalArgumentException("landmark tables were computed for a different graph");
+        this.G = G;
+        this.exact = new PointToPointSP(G);
+        this.tables = new Tables(landmarks, G.version());
+        distTo = new double[G.V()];
+        edgeTo = new DirectedEdge[G.V()];
+        bound = new double[G.V()];
+        visited = new int[G.V()];
+        pq = new DoubleIndexMinPQ(G.V());
+    }
+
+   /**
+     * Are queries currently answered with the landmark tables rather than
+     * with the exact fallback?
+     */
+    public boolean isCurrent() {
+        return tables.version == G.version();
+    }
+
+   /**
+     * Recompute the tables for the current graph now, on the calling thread.
+     */
+    public void refresh() {
+        Tables old = tables;
+        int version = G.version();
+        tables = new Tables(old.landmarks.recompute(new CSRDigraph(G)), version);
+    }
+
+    // start recomputing the tables on a frozen copy of the graph, unless that is already underway
+    private void refreshInBackground() {
+        if (refreshing) return;
+        refreshing = true;
+        final Landmarks old = tables.landmarks;
+        final CSRDigraph frozen = new CSRDigraph(G);
+        final int version = G.version();
+        Thread worker = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    tables = new Tables(old.recompute(frozen), version);
+                }
+                finally {
+                    refreshing = false;
+                }
+            }
+        }, "landmark-refresh");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    // shortest path from s to t
+    public Path query(int s, int t) {
+        Tables current = tables;
+        if (current.version != G.version()) {
+            refreshInBackground();
+            return exact.query(s, t);
+        }
+        Landmarks L = current.landmarks;
+
+        if (s < 0 || s >= G.V() || t < 0 || t >= G.V())
+            throw new IndexOutOfBoundsException("vertex " + (s < 0 || s >= G.V() ? s : t) + " is not between 0 and " + (G.V() - 1));
+        if (query == Integer.MAX_VALUE) {
+            Arrays.fill(visited, 0);
+            query = 0;
+        }
+        query++;
+        pq.clear();
+
+        int settled = 0;
+        reach(s, 0.0, null, L.lowerBound(s, t));
+        if (bound[s] < Double.POSITIVE_INFINITY) pq.insert(s, bound[s]);
+        while (!pq.isEmpty()) {
+            int v = pq.delMin();
+            settled++;
+            if (v == t) break;
+            for (DirectedEdge e : G.adj(v)) {
+                int w = e.to();
+                double dist = distTo[v] + e.weight();
+                if (visited[w] != query) {
+                    reach(w, dist, e, L.lowerBound(w, t));
+                    if (bound[w] < Double.POSITIVE_INFINITY) pq.insert(w, dist + bound[w]);
+                }
+                else if (distTo[w] > dist && bound[w] < Double.POSITIVE_INFINITY) {
+                    reach(w, dist, e, bound[w]);
+                    pq.insertOrDecrease(w, dist + bound[w]);
+                }
+            }
+        }
+
+        if (visited[t] != query) return Path.none(settled);
+        Stack<DirectedEdge> path = new Stack<DirectedEdge>();
+        for (DirectedEdge e = edgeTo[t]; e != null; e = edgeTo[e.from()])
+            path.push(e);
+        return new Path(path, distTo[t], settled);
+    }
+
+    private void reach(int v, double dist, DirectedEdge e, double h) {
+        visited[v] = query;
+        distTo[v] = dist;
+        edgeTo[v] = e;
+        bound[v] = h;
+    }
+}
@@ -3,36 +3,47 @@ import java.io.*;
 
 public class Assig5{
 
+	//P prints at most this many paths, searching for at most this many seconds,
+	//unless the command gives its own: P start end limit [maxPaths] [seconds]
+	static final long MAX_PATHS = ParallelPathEnumerator.MAX_PATHS;
+	static final double PATH_SECONDS = ParallelPathEnumerator.TIMEOUT_MILLIS / 1000.0;
+
 	EdgeWeightedDigraph network;
+	PathEngine router;
+	String forest;   //the algorithm that answers M, see spanningForest()
 	int vertices, edges;
 
-	public Assig5(String fileName) throws FileNotFoundException{
-
-		File file = new File(fileName);
-		Scanner fileScanner = new Scanner(file);
+	public Assig5(String fileName) throws IOException{
+		this(fileName, "dijkstra");
+	}
 
-		vertices = fileScanner.nextInt();
-		edges = fileScanner.nextInt();
+	public Assig5(String fileName, String engine) throws IOException{
+		this(fileName, engine, "prim");
+	}
 
-		network = new EdgeWeightedDigraph(vertices);
+	//engine names the algorithm that answers S queries, see engine(), and
+	//forest the one that answers M, see spanningForest()
+	public Assig5(String fileName, String engine, String forest) throws IOException{
+		this(fileName, engine, forest, false);
+	}
 
-		fileScanner.nextLine();
+	//with stats set, the time the load took and its rate in MB and edges per
+	//second are printed before the network is established
+	public Assig5(String fileName, String engine, String forest, boolean stats) throws IOException{
 
-		while(fileScanner.hasNext())
-		{
-			String newLine = fileScanner.nextLine();
+		if(!forest.equals("live") && !forest.equals("prim") && !forest.equals("eager") && !forest.equals("kruskal") && !forest.equals("auto"))
+			throw new IllegalArgumentException("Unknown MST engine " + forest + ", expected live, prim, eager, kruskal or auto");
+		this.forest = forest;
 
-			String [] line = newLine.split(" ");
+		//text files are parsed, binary files written by GraphFile are mapped rather than parsed
+		network = GraphFile.read(fileName, stats ? System.out : null);
 
-			int vertex1 = Integer.parseInt(line[0]);
-			int vertex2 = Integer.parseInt(line[1]);
-			int edgeWeight = Integer.parseInt(line[2]);
+		vertices = network.V();
+		edges = network.E() / 2;
 
-			DirectedEdge newEdge = new DirectedEdge(vertex1, vertex2, edgeWeight);
-			DirectedEdge otherEdge = new DirectedEdge(vertex2,vertex1,edgeWeight);
-			network.addEdge(newEdge);
-			network.addEdge(otherEdge);
-		}
+		//S queries stop as soon as the end vertex is settled; DijkstraSP is only
+		//needed by callers that want the whole shortest path tree
+		router = engine(engine);
 
 		System.out.println("The network has been established");
 
@@ -43,119 +54,236 @@ public class Assig5{
 
 		while(!userInput.equals("Q")){
 
-			String [] vals = userInput.split(" ");
+			execute(userInput);
 
-			if(userInput.equals("R")){
+			System.out.println();
+			System.out.println("Enter your command");
+			userInput = inScan.nextLine();
+		}
+	}
 
-				network.upDownStatus();
-				System.out.println("The current active network includes the following " + network.V() + " nodes and " + network.E() + " edges:");
-				System.out.println(network.toString());
-			}
+	//a session on a network loaded elsewhere, as QueryServer runs one per
+	//connection; it answers S queries with its own PointToPointSP
+	Assig5(EdgeWeightedDigraph network){
 
-			else if(userInput.equals("M")){
+		this.network = network;
 
-				EdgeWeightedDigraph graphCopy = new EdgeWeightedDigraph(vertices);
+		vertices = network.V();
+		edges = network.E() / 2;
 
-				for(DirectedEdge e : network.edges())
-					graphCopy.changeEdge(e.from(),e.to(),e.weight());
+		router = new PointToPointSP(network);
+		forest = "prim";
+	}
 
-				LazyPrimMSTTrace prim = new LazyPrimMSTTrace(graphCopy);
+	//run one command other than Q, printing its answer to System.out
+	void execute(String userInput){
+		execute(userInput, System.out);
+	}
 
-				System.out.println("The MST is composed of the following edges:");
+	//run one command other than Q, printing its answer to out. R, M, S, P
+	//and K read a snapshot of the network taken when they start, never the
+	//network itself, so they do not wait for D, U and C, nor D, U and C for
+	//them, and each answers for the network as it was at one moment
+	void execute(String userInput, PrintStream out){
 
-				for(Edge e : prim.edges())
-					System.out.println(e.toString());
-				System.out.println();
-			}
+		String [] vals = userInput.split(" ");
 
-			else{
+		if(userInput.equals("R")){
+
+			GraphSnapshot snapshot = network.snapshot();
+			snapshot.upDownStatus(out);
+			out.println("The current active network includes the following " + snapshot.V() + " nodes and " + snapshot.E() + " edges:");
+			out.println(snapshot.toString());
+		}
+
+		else if(userInput.equals("M")){
 
-				String firstChar = new String(new char[]  {userInput.charAt(0)});
+			SpanningForest mst = spanningForest(network.snapshot());
 
-				if(firstChar.equals("S")){
+			out.println("The MST is composed of the following edges:");
 
-					int startVertex = Integer.parseInt(vals[1]);
-					int endVertex = Integer.parseInt(vals[2]);
+			for(Edge e : mst.edges())
+				out.println(e.toString());
+			out.println();
+		}
+
+		else{
+
+			String firstChar = new String(new char[]  {userInput.charAt(0)});
 
-					DijkstraSP shortestPath = new DijkstraSP(network, startVertex);
+			if(firstChar.equals("S")){
 
-					System.out.println("The shortest path from vertex " + startVertex + " to vertex " + endVertex + " is:");
+				int startVertex = Integer.parseInt(vals[1]);
+				int endVertex = Integer.parseInt(vals[2]);
 
-					if(shortestPath.pathTo(endVertex) != null){
-						System.out.println(shortestPath.pathTo(endVertex));
-						System.out.println("The total weight of this path is: " + shortestPath.distTo(endVertex));
-					}
-					else
-						System.out.println("The path between " + startVertex + " and " + endVertex + " does not exsist.");
+				//only the plain Dijkstra engine searches the snapshot; the others
+				//keep their own tables of the network, and must read it as it is
+				Path shortestPath;
+				if(router instanceof PointToPointSP)
+					shortestPath = ((PointToPointSP) router).query(network.snapshot(), startVertex, endVertex);
+				else
+					shortestPath = router.query(startVertex, endVertex);
+
+				out.println("The shortest path from vertex " + startVertex + " to vertex " + endVertex + " is:");
+
+				if(shortestPath.hasPath()){
+					out.println(shortestPath.edges());
+					out.println("The total weight of this path is: " + shortestPath.weight());
 				}
+				else
+					out.println("The path between " + startVertex + " and " + endVertex + " does not exsist.");
+			}
 
-				else if(firstChar.equals("P")){
+			else if(firstChar.equals("P")){
 
-					//try{
-					int startVertex = Integer.parseInt(vals[1]);
-					int endVertex = Integer.parseInt(vals[2]);
-					double weightLimit = Double.parseDouble(vals[3]);
+				//try{
+				int startVertex = Integer.parseInt(vals[1]);
+				int endVertex = Integer.parseInt(vals[2]);
+				double weightLimit = Double.parseDouble(vals[3]);
+				long maxPaths = (vals.length > 4) ? Long.parseLong(vals[4]) : MAX_PATHS;
+				double seconds = (vals.length > 5) ? Double.parseDouble(vals[5]) : PATH_SECONDS;
 
-					network.allPaths(startVertex,endVertex,weightLimit);
-					//}
+				network.snapshot().allPaths(startVertex,endVertex,weightLimit,maxPaths,(long) (seconds * 1000),out);
+				//}
 
-					//catch(Exception e){
-					//	System.out.println("Operation was not formatted correctly. Please try again");
-					//}
+				//catch(Exception e){
+				//	out.println("Operation was not formatted correctly. Please try again");
+				//}
 
+			}
+
+			else if(firstChar.equals("K")){
+
+				//K start end k: the k lightest simple paths, lightest first
+				try{
+				int startVertex = Integer.parseInt(vals[1]);
+				int endVertex = Integer.parseInt(vals[2]);
+				int k = Integer.parseInt(vals[3]);
+
+				YenKSP paths = new YenKSP(new CSRDigraph(network.snapshot()), startVertex, endVertex);
+
+				out.println("The " + k + " shortest paths from vertex " + startVertex + " to vertex " + endVertex + " are:");
+
+				int found = 0;
+				while(found < k && paths.hasNext()){
+					Path path = paths.next();
+					found++;
+					out.println(found + ": " + path.edges());
+					out.println("   The total weight of this path is: " + path.weight());
+				}
+				if(found < k)
+					out.println("There is no other path between " + startVertex + " and " + endVertex + ".");
 				}
 
-				else if(firstChar.equals("D")){
+				catch(Exception e){
+					out.println("Operation was not formatted correctly. Please try again");
+				}
+			}
 
-					try{
-					int removedNode = Integer.parseInt(vals[1]);
-					network.takeDownVertex(removedNode);
-					}
+			else if(firstChar.equals("D")){
 
-					catch(Exception e){
-						System.out.println("Operation was not formatted correctly. Please try again");
-					}
+				try{
+				int removedNode = Integer.parseInt(vals[1]);
+				network.takeDownVertex(removedNode);
 				}
 
-				else if(firstChar.equals("U")){
+				catch(Exception e){
+					out.println("Operation was not formatted correctly. Please try again");
+				}
+			}
 
-					try{
-					int restoredNode = Integer.parseInt(vals[1]);
-					network.restoreVertex(restoredNode);
-					}
+			else if(firstChar.equals("U")){
 
-					catch(Exception e){
-						System.out.println("Operation was not formatted correctly. Please try again");
-					}
+				try{
+				int restoredNode = Integer.parseInt(vals[1]);
+				network.restoreVertex(restoredNode);
 				}
 
-				else if(firstChar.equals("C")){
+				catch(Exception e){
+					out.println("Operation was not formatted correctly. Please try again");
+				}
+			}
 
-					try{
-					int startVertex = Integer.parseInt(vals[1]);
-					int endVertex = Integer.parseInt(vals[2]);
-					double newWeight = Double.parseDouble(vals[3]);
-					network.changeEdge(startVertex,endVertex,newWeight);
-					}
+			else if(firstChar.equals("C")){
 
-					catch(Exception e){
-						System.out.println("Operation was not formatted correctly. Please try again");
-					}
+				try{
+				int startVertex = Integer.parseInt(vals[1]);
+				int endVertex = Integer.parseInt(vals[2]);
+				double newWeight = Double.parseDouble(vals[3]);
+				network.changeEdge(startVertex,endVertex,newWeight,out);
 				}
 
-				else{
-					System.out.println("Incorrect Command");
-					System.out.println();
+				catch(Exception e){
+					out.println("Operation was not formatted correctly. Please try again");
 				}
+			}
 
+			else{
+				out.println("Incorrect Command");
+				out.println();
 			}
-			System.out.println();
-			System.out.println("Enter your command");
-			userInput = inScan.nextLine();
+
 		}
 	}
 
-	public static void main(String [] args)throws FileNotFoundException{
-		Assig5 runner = new Assig5(args[0]);
+	//the engines that can answer S queries. Every engine finds a path of the
+	//same weight, but may pick a different one when several are shortest.
+	private PathEngine engine(String name) throws IOException{
+
+		if(name.equals("dijkstra"))
+			return new PointToPointSP(network);
+		else if(name.equals("bidirectional"))
+			return new BidirectionalSP(network, true);   //the loader adds both directions of every link
+		else if(name.equals("alt")){
+			//landmark tables are chosen afresh and kept in memory only
+			CSRDigraph frozen = new CSRDigraph(network);
+			return new ALTSP(network, Landmarks.avoid(frozen, Math.min(16, frozen.V()), true));
+		}
+		else if(name.startsWith("alt=")){
+			//alt=tables.alt reads the tables from that file, choosing and writing them if it is missing or stale
+			CSRDigraph frozen = new CSRDigraph(network);
+			return new ALTSP(network, Landmarks.open(frozen, name.substring(4), 16, true));
+		}
+		else if(name.equals("ch"))
+			return new CHSP(network);
+		else if(name.equals("cached"))
+			return new SPTCache(network);   //keeps whole trees for sources queried again between changes
+		else
+			throw new IllegalArgumentException("Unknown engine " + name + ", expected dijkstra, bidirectional, alt, alt=file, ch or cached");
+	}
+
+	//the engines that can answer M, on a snapshot of the network. prim, the
+	//default, runs the trace and prints M exactly as it always has. live
+	//runs on the snapshot itself, with no copy of its edges, and eager on a
+	//copy; both list the edges in the order their vertices join the tree, as
+	//prim does, but may print an edge's ends the other way round, or order
+	//edges of equal weight differently. kruskal lists them in order of
+	//weight. All but live freeze the snapshot into a CSRDigraph first. auto
+	//is for callers that do not care about the order: dense networks go to
+	//the array scan of PrimMST, which takes time proportional to V^2 whatever
+	//the weights, and sparse ones to Kruskal, whose sort is linear in E.
+	private SpanningForest spanningForest(GraphSnapshot snapshot){
+
+		if(forest.equals("live"))
+			return new LivePrimMST(snapshot, true);   //the loader adds both directions of every link
+
+		CSRDigraph frozen = new CSRDigraph(snapshot);
+
+		boolean dense = PrimMST.isDense(frozen.V(), frozen.E());
+
+		if(forest.equals("prim"))
+			return new LazyPrimMSTTrace(frozen);
+		else if(forest.equals("eager") || (forest.equals("auto") && dense))
+			return new PrimMST(frozen, dense, true);   //the loader adds both directions of every link
+		else
+			return new KruskalMST(frozen);
+	}
+
+	//java Assig5 [-stats] graph.txt [dijkstra | bidirectional | alt | alt=file | ch | cached] [live | prim | eager | kruskal | auto]
+	public static void main(String [] args)throws IOException{
+		boolean stats = args.length > 0 && args[0].equals("-stats");
+		if(stats)
+			args = Arrays.copyOfRange(args, 1, args.length);
+		Assig5 runner = new Assig5(args[0], args.length > 1 ? args[1] : "dijkstra", args.length > 2 ? args[2] : "prim", stats);
 	}
 }
\ No newline at end of file
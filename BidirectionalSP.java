@@ -0,0 +1,198 @@
+/*************************************************************************
+ *  Compilation:  javac BidirectionalSP.java
+ *  Execution:    java BidirectionalSP
+ *  Dependencies: EdgeWeightedDigraph.java DoubleIndexMinPQ.java Path.java
+ *                PathEngine.java Stack.java DirectedEdge.java
+ *
+ *  Bidirectional Dijkstra: searches forward from s and backward from t
+ *  until the two searches meet. Assumes all weights are nonnegative.
+ *
+ *************************************************************************/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ *  The <tt>BidirectionalSP</tt> class answers s->t shortest path queries by
+ *  growing one Dijkstra search forward from s and another backward from t,
+ *  always advancing the one whose next vertex is closer. Every edge relaxed
+ *  between a forward-reached and a backward-reached vertex is a candidate
+ *  s->t path, and the best candidate mu is kept. The search stops once the
+ *  minimum keys of the two priority queues add up to at least mu, since
+ *  no path through an unsettled vertex can then be shorter. On road-like
+ *  networks this settles roughly two balls of half the radius.
+ *  <p>
+ *  The backward search needs the edges entering each vertex. When the graph
+ *  is undirected, every u->v has a twin v->u of the same weight, so the
+ *  backward search simply scans <tt>adj(v)</tt>; this is how <tt>Assig5</tt>
+ *  loads its networks. For a true directed graph a reverse adjacency index
+ *  is built, and rebuilt lazily whenever <tt>G.version()</tt> shows that
+ *  the graph has changed since.
+ *  <p>
+ *  Among several shortest paths it may return a different one than
+ *  <tt>DijkstraSP</tt>, but always one of the same weight.
+ */
+public class BidirectionalSP implements PathEngine {
+    private final EdgeWeightedDigraph G;
+    private final boolean undirected;       // does every edge have a twin of the same weight?
+
+    private final double[] distF;           // forward: distance of shortest s->v path found so far
+    private final DirectedEdge[] edgeF;     // forward: last edge on that path
+    private final int[] visitedF;           // forward entries are valid iff visitedF[v] == query
+    private final DoubleIndexMinPQ pqF;
+
+    private final double[] distB;           // backward: distance of shortest v->t path found so far
+    private final DirectedEdge[] edgeB;     // backward: first edge on that path, leaving v
+                                            // (its twin, entering v, in undirected mode)
+    private final int[] visitedB;
+    private final DoubleIndexMinPQ pqB;
+    private int query;
+
+    private int[] inOffsets;                // reverse index: edges entering v are
+    private DirectedEdge[] inEdges;         // inEdges[inOffsets[v] .. inOffsets[v+1]-1]
+    private int inVersion;                  // G.version() when the reverse index was built
+
+    // best s->t path seen so far: s ~> meetFrom, meetEdge, meetTo ~> t
+    private double mu;
+    private int meetFrom, meetTo;
+    private DirectedEdge meetEdge;          // null when the edge is the twin of meetTwin
+    private DirectedEdge meetTwin;
+
+   /**
+     * Create an engine for the digraph G. If undirected is true, G must
+     * contain the twin v->u of every edge u->v, with the same weight.
+     */
+    public BidirectionalSP(EdgeWeightedDigraph G, boolean undirected) {
+        this.G = G;
+        this.undirected = undirected;
+        int V = G.V();
+        distF = new double[V];
+        edgeF = new DirectedEdge[V];
+        visitedF = new int[V];
+        pqF = new DoubleIndexMinPQ(V);
+        distB = new double[V];
+        edgeB = new DirectedEdge[V];
+        visitedB = new int[V];
+        pqB = new DoubleIndexMinPQ(V);
+        if (!undirected) buildReverse();
+    }
+
+    // shortest path from s to t
+    public Path query(int s, int t) {
+        if (s < 0 || s >= G.V() || t < 0 || t >= G.V())
+            throw new IndexOutOfBoundsException("vertex " + (s < 0 || s >= G.V() ? s : t) + " is not between 0 and " + (G.V() - 1));
+        if (!undirected && inVersion != G.version()) buildReverse();
+
+        if (query == Integer.MAX_VALUE) {
+            Arrays.fill(visitedF, 0);
+            Arrays.fill(visitedB, 0);
+            query = 0;
+        }
+        query++;
+        pqF.clear();
+        pqB.clear();
+        mu = Double.POSITIVE_INFINITY;
+        meetEdge = meetTwin = null;
+
+        if (s == t) return new Path(new Stack<DirectedEdge>(), 0.0, 0);
+
+        visitedF[s] = query; distF[s] = 0.0; edgeF[s] = null; pqF.insert(s, 0.0);
+        visitedB[t] = query; distB[t] = 0.0; edgeB[t] = null; pqB.insert(t, 0.0);
+
+        int settled = 0;
+        while (!pqF.isEmpty() && !pqB.isEmpty() && pqF.minKey() + pqB.minKey() < mu) {
+            settled++;
+            if (pqF.minKey() <= pqB.minKey()) scanForward(pqF.delMin());
+            else                              scanBackward(pqB.delMin());
+        }
+
+        if (mu == Double.POSITIVE_INFINITY) return Path.none(settled);
+        return new Path(path(), mu, settled);
+    }
+
+    private void scanForward(int v) {
+        for (DirectedEdge e : G.adj(v)) {
+            int w = e.to();
+            double dist = distF[v] + e.weight();
+            if (visitedF[w] != query || distF[w] > dist) {
+                visitedF[w] = query;
+                distF[w] = dist;
+                edgeF[w] = e;
+                pqF.insertOrDecrease(w, dist);
+            }
+            if (visitedB[w] == query && dist + distB[w] < mu) {
+                mu = dist + distB[w];
+                meetFrom = v; meetTo = w; meetEdge = e; meetTwin = null;
+            }
+        }
+    }
+
+    private void scanBackward(int v) {
+        if (undirected) {
+            for (DirectedEdge e : G.adj(v))           // e = v->u stands for its twin u->v
+                relaxBackward(e.to(), v, e, null);
+        }
+        else {
+            for (int i = inOffsets[v]; i < inOffsets[v + 1]; i++)
+                relaxBackward(inEdges[i].from(), v, null, inEdges[i]);
+        }
+    }
+
+    // relax the edge u->v backwards; exactly one of twin and e is non-null
+    private void relaxBackward(int u, int v, DirectedEdge twin, DirectedEdge e) {
+        double weight = (e != null) ? e.weight() : twin.weight();
+        double dist = distB[v] + weight;
+        if (visitedB[u] != query || distB[u] > dist) {
+            visitedB[u] = query;
+            distB[u] = dist;
+            edgeB[u] = (e != null) ? e : twin;
+            pqB.insertOrDecrease(u, dist);
+        }
+        if (visitedF[u] == query && distF[u] + dist < mu) {
+            mu = distF[u] + dist;
+            meetFrom = u; meetTo = v; meetEdge = e; meetTwin = twin;
+        }
+    }
+
+    // s ~> meetFrom -> meetTo ~> t, as a stack with the first edge on top
+    private Stack<DirectedEdge> path() {
+        ArrayList<DirectedEdge> tail = new ArrayList<DirectedEdge>();
+        for (int u = meetTo; edgeB[u] != null; ) {
+            DirectedEdge e = edgeB[u];
+            if (undirected) { tail.add(twin(e)); u = e.from(); }
+            else            { tail.add(e);       u = e.to();   }
+        }
+
+        Stack<DirectedEdge> path = new Stack<DirectedEdge>();
+        for (int i = tail.size() - 1; i >= 0; i--)
+            path.push(tail.get(i));
+        path.push(meetEdge != null ? meetEdge : twin(meetTwin));
+        for (DirectedEdge e = edgeF[meetFrom]; e != null; e = edgeF[e.from()])
+            path.push(e);
+        return path;
+    }
+
+    // the edge v->u of the same weight as u->v, which an undirected graph must have
+    private DirectedEdge twin(DirectedEdge e) {
+        for (DirectedEdge f : G.adj(e.to()))
+            if (f.to() == e.from() && f.weight() == e.weight()) return f;
+        throw new IllegalStateException("edge " + e + " has no twin; the graph is not undirected");
+    }
+
+    // index the edges entering each vertex, grouped by head as in a CSR digraph
+    private void buildReverse() {
+        int V = G.V();
+        inOffsets = new int[V + 1];
+        for (int v = 0; v < V; v++)
+            for (DirectedEdge e : G.adj(v))
+                inOffsets[e.to() + 1]++;
+        for (int v = 0; v < V; v++)
+            inOffsets[v + 1] += inOffsets[v];
+        inEdges = new DirectedEdge[inOffsets[V]];
+        int[] next = Arrays.copyOf(inOffsets, V);
+        for (int v = 0; v < V; v++)
+            for (DirectedEdge e : G.adj(v))
+                inEdges[next[e.to()]++] = e;
+        inVersion = G.version();
+    }
+}
@@ -0,0 +1,95 @@
+/*************************************************************************
+ *  Compilation:  javac CHSP.java
+ *  Execution:    java CHSP
+ *  Dependencies: EdgeWeightedDigraph.java ContractionHierarchy.java
+ *                CSRDigraph.java PointToPointSP.java Path.java PathEngine.java
+ *
+ *  Point-to-point shortest paths with a contraction hierarchy, falling
+ *  back to exact Dijkstra while the hierarchy is out of date.
+ *
+ *************************************************************************/
+
+/**
+ *  The <tt>CHSP</tt> class answers s->t shortest path queries with a
+ *  <tt>ContractionHierarchy</tt> built for the current edges of G.
+ *  <p>
+ *  The hierarchy describes the graph as it was when it was built. Once
+ *  <tt>G.version()</tt> shows that an edge was changed or a vertex taken
+ *  down or restored, queries fall back to exact Dijkstra
+ *  (<tt>PointToPointSP</tt>), and a new hierarchy is contracted on a
+ *  background thread from a frozen copy of the graph. Hierarchy queries
+ *  resume once one for the current version is ready.
+ */
+public class CHSP implements PathEngine {
+    private final EdgeWeightedDigraph G;
+    private final PointToPointSP exact;     // used while the hierarchy is stale
+    private volatile Built built;           // the hierarchy and the graph version it describes
+    private volatile boolean rebuilding;    // is a background contraction running?
+
+    // a hierarchy together with the version of G it was built for
+    private static class Built {
+        final ContractionHierarchy hierarchy;
+        final int version;
+
+        Built(ContractionHierarchy hierarchy, int version) {
+            this.hierarchy = hierarchy;
+            this.version = version;
+        }
+    }
+
+   /**
+     * Create an engine for G, contracting its current edges on the calling thread.
+     */
+    public CHSP(EdgeWeightedDigraph G) {
+        this.G = G;
+        this.exact = new PointToPointSP(G);
+        this.built = new Built(new ContractionHierarchy(G), G.version());
+    }
+
+   /**
+     * Are queries currently answered with the hierarchy rather than
+     * with the exact fallback?
+     */
+    public boolean isCurrent() {
+        return built.version == G.version();
+    }
+
+   /**
+     * Rebuild the hierarchy for the current graph now, on the calling thread.
+     */
+    public void rebuild() {
+        int version = G.version();
+        built = new Built(new ContractionHierarchy(G), version);
+    }
+
+    // start contracting a frozen copy of the graph, unless that is already underway
+    private void rebuildInBackground() {
+        if (rebuilding) return;
+        rebuilding = true;
+        final CSRDigraph frozen = new CSRDigraph(G);
+        final DirectedEdge[] edges = ContractionHierarchy.slotEdges(G);
+        final int version = G.version();
+        Thread worker = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    built = new Built(new ContractionHierarchy(frozen, edges, null), version);
+                }
+                finally {
+                    rebuilding = false;
+                }
+            }
+        }, "hierarchy-rebuild");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    // shortest path from s to t
+    public Path query(int s, int t) {
+        Built current = built;
+        if (current.version != G.version()) {
+            rebuildInBackground();
+            return exact.query(s, t);
+        }
+        return current.hierarchy.query(s, t);
+    }
+}
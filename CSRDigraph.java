@@ -0,0 +1,266 @@
+/*************************************************************************
+ *  Compilation:  javac CSRDigraph.java
+ *  Execution:    java CSRDigraph
+ *  Dependencies: WeightedDigraph.java FrozenDigraph.java MappedDigraph.java
+ *                EdgeWeightedDigraph.java DirectedEdge.java Bag.java
+ *
+ *  A frozen edge-weighted digraph, stored in compressed sparse row form.
+ *
+ *************************************************************************/
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ *  The <tt>CSRDigraph</tt> class represents an immutable directed graph of
+ *  vertices named 0 through V-1, where each edge has a real-valued weight.
+ *  The edges leaving vertex v occupy the slots <tt>begin(v)</tt> through
+ *  <tt>end(v)-1</tt> of two parallel arrays holding the head and the weight
+ *  of each edge, so iterating over <tt>adj(v)</tt> touches contiguous memory
+ *  and needs no per-edge objects.
+ *  <p>
+ *  Slots are laid out in the same order in which <tt>EdgeWeightedDigraph.adj(v)</tt>
+ *  returned the edges, so algorithms that break ties by iteration order
+ *  produce identical results on both representations.
+ *  <p>
+ *  The slots are plain arrays on the heap. A network mapped from a file by
+ *  <tt>GraphFile</tt> is a <tt>MappedDigraph</tt> instead; freezing it, or
+ *  an <tt>EdgeWeightedDigraph</tt> loaded from one and not changed since,
+ *  copies the slots in bulk rather than edge by edge.
+ */
+public class CSRDigraph implements FrozenDigraph {
+    private final int V;
+    private final int E;
+    private final int[] offsets;     // edges leaving v are in slots offsets[v] .. offsets[v+1]-1
+    private final int[] targets;     // targets[i] = head of the edge in slot i
+    private final double[] weights;  // weights[i] = weight of the edge in slot i
+
+   /**
+     * Freeze the current edges of G into compressed sparse row form. If G is
+     * an <tt>EdgeWeightedDigraph</tt> that has not changed since it was loaded,
+     * or a snapshot of one, its slots are taken from what it was loaded from.
+     */
+    public CSRDigraph(WeightedDigraph G) {
+        FrozenDigraph loaded = null;
+        if (G instanceof EdgeWeightedDigraph) loaded = ((EdgeWeightedDigraph) G).unchanged();
+        else if (G instanceof GraphSnapshot)  loaded = ((GraphSnapshot) G).unchanged();
+        if (loaded != null) {
+            CSRDigraph F = (loaded instanceof CSRDigraph) ? (CSRDigraph) loaded : new CSRDigraph(loaded);
+            V = F.V;                         // the arrays are never written, so they can be shared
+            E = F.E;
+            offsets = F.offsets;
+            targets = F.targets;
+            weights = F.weights;
+            return;
+        }
+
+        V = G.V();
+        offsets = new int[V + 1];
+        for (int v = 0; v < V; v++)
+            offsets[v + 1] = offsets[v] + G.outdegree(v);
+        E = offsets[V];
+        targets = new int[E];
+        weights = new double[E];
+        for (int v = 0; v < V; v++) {
+            int i = offsets[v];
+            for (DirectedEdge e : G.adj(v)) {
+                targets[i] = e.to();
+                weights[i] = e.weight();
+                i++;
+            }
+        }
+    }
+
+   /**
+     * Copy the slots of G onto the heap.
+     */
+    public CSRDigraph(FrozenDigraph G) {
+        V = G.V();
+        E = G.E();
+        offsets = new int[V + 1];
+        targets = new int[E];
+        weights = new double[E];
+        if (G instanceof MappedDigraph) {
+            ((MappedDigraph) G).copy(offsets, targets, weights);
+            return;
+        }
+        for (int v = 0; v <= V; v++)
+            offsets[v] = (v < V) ? G.begin(v) : E;
+        for (int i = 0; i < E; i++) {
+            targets[i] = G.target(i);
+            weights[i] = G.weight(i);
+        }
+    }
+
+   /**
+     * Wrap already built CSR arrays. The arrays are not copied.
+     * @throws java.lang.IllegalArgumentException if the arrays are inconsistent
+     */
+    public CSRDigraph(int V, int[] offsets, int[] targets, double[] weights) {
+        if (V < 0) throw new IllegalArgumentException("Number of vertices must be nonnegative");
+        if (offsets.length != V + 1 || offsets[0] != 0)
+            throw new IllegalArgumentException("offsets must have V+1 entries starting at 0");
+        if (targets.length != offsets[V] || weights.length != offsets[V])
+            throw new IllegalArgumentException("targets and weights must have offsets[V] entries");
+        this.V = V;
+        this.E = offsets[V];
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+   /**
+     * Return the number of vertices in this digraph.
+     */
+    public int V() {
+        return V;
+    }
+
+   /**
+     * Return the number of edges in this digraph.
+     */
+    public int E() {
+        return E;
+    }
+
+   /**
+     * Return the first slot of the edges leaving v.
+     */
+    public int begin(int v) {
+        return offsets[v];
+    }
+
+   /**
+     * Return one past the last slot of the edges leaving v.
+     */
+    public int end(int v) {
+        return offsets[v + 1];
+    }
+
+   /**
+     * Return the vertex where the edge in slot i ends.
+     */
+    public int target(int i) {
+        return targets[i];
+    }
+
+   /**
+     * Return the weight of the edge in slot i.
+     */
+    public double weight(int i) {
+        return weights[i];
+    }
+
+   /**
+     * Return the vertex where the edge in slot i begins.
+     * Takes time logarithmic in V, so prefer tracking the tail while iterating.
+     */
+    public int source(int i) {
+        if (i < 0 || i >= E) throw new IndexOutOfBoundsException();
+        int lo = 0, hi = V - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (offsets[mid] <= i) lo = mid;
+            else                       hi = mid - 1;
+        }
+        return lo;
+    }
+
+   /**
+     * Return number of edges leaving v.
+     */
+    public int outdegree(int v) {
+        return offsets[v + 1] - offsets[v];
+    }
+
+   /**
+     * Return the edge in slot i as a newly allocated DirectedEdge.
+     */
+    public DirectedEdge edge(int i) {
+        return new DirectedEdge(source(i), targets[i], weights[i]);
+    }
+
+   /**
+     * Return the reverse of this digraph, in which every edge v->w becomes w->v
+     * with the same weight. The edges entering w keep the order of their tails.
+     */
+    public CSRDigraph reverse() {
+        int[] offsets = new int[V + 1];
+        for (int i = 0; i < E; i++)
+            offsets[targets[i] + 1]++;
+        for (int v = 0; v < V; v++)
+            offsets[v + 1] += offsets[v];
+        int[] targets = new int[E];
+        double[] weights = new double[E];
+        int[] next = new int[V];
+        for (int v = 0; v < V; v++)
+            next[v] = offsets[v];
+        for (int v = 0; v < V; v++) {
+            for (int i = begin(v); i < end(v); i++) {
+                int slot = next[target(i)]++;
+                targets[slot] = v;
+                weights[slot] = weight(i);
+            }
+        }
+        return new CSRDigraph(V, offsets, targets, weights);
+    }
+
+   /**
+     * Return the edges leaving vertex v as an Iterable.
+     * Each edge is materialized as a new DirectedEdge; hot loops should
+     * walk the slots from <tt>begin(v)</tt> to <tt>end(v)</tt> instead.
+     */
+    public Iterable<DirectedEdge> adj(final int v) {
+        return new Iterable<DirectedEdge>() {
+            public Iterator<DirectedEdge> iterator() { return new SlotIterator(v); }
+        };
+    }
+
+   /**
+     * Return all edges in this graph as an Iterable, in the same order
+     * as <tt>EdgeWeightedDigraph.edges()</tt>.
+     */
+    public Iterable<DirectedEdge> edges() {
+        Bag<DirectedEdge> list = new Bag<DirectedEdge>();
+        for (int v = 0; v < V; v++)
+            for (int i = offsets[v]; i < offsets[v + 1]; i++)
+                list.add(new DirectedEdge(v, targets[i], weights[i]));
+        return list;
+    }
+
+   /**
+     * Return a string representation of this graph.
+     */
+    public String toString() {
+        String NEWLINE = System.getProperty("line.separator");
+        StringBuilder s = new StringBuilder();
+        for (int v = 0; v < V; v++) {
+            s.append(v + ": ");
+            for (int i = offsets[v]; i < offsets[v + 1]; i++)
+                s.append(new DirectedEdge(v, targets[i], weights[i]) + "  ");
+            s.append(NEWLINE);
+        }
+        return s.toString();
+    }
+
+    // an iterator over the slots of one vertex, doesn't implement remove()
+    private class SlotIterator implements Iterator<DirectedEdge> {
+        private final int v;
+        private int i;
+
+        public SlotIterator(int v) {
+            this.v = v;
+            this.i = offsets[v];
+        }
+
+        public boolean hasNext()  { return i < offsets[v + 1];              }
+        public void remove()      { throw new UnsupportedOperationException();  }
+
+        public DirectedEdge next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            DirectedEdge e = new DirectedEdge(v, targets[i], weights[i]);
+            i++;
+            return e;
+        }
+    }
+}
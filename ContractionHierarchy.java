@@ -0,0 +1,469 @@
+/*************************************************************************
+ *  Compilation:  javac ContractionHierarchy.java
+ *  Execution:    java ContractionHierarchy graph.txt [queries]
+ *                java ContractionHierarchy grid W H [queries]
+ *  Dependencies: EdgeWeightedDigraph.java CSRDigraph.java DoubleIndexMinPQ.java
+ *                DijkstraSP.java PointToPointSP.java Path.java Stack.java
+ *
+ *  Contraction hierarchies: shortcuts added by contracting the vertices
+ *  one at a time, then queried with an upward bidirectional search.
+ *  Assumes all weights are nonnegative.
+ *
+ *  % java ContractionHierarchy grid 300 300 1000
+ *  contracted 10% of 90000 vertices, 18301 shortcuts, 262 ms
+ *  ...
+ *
+ *************************************************************************/
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ *  The <tt>ContractionHierarchy</tt> class preprocesses a digraph so that
+ *  shortest path queries settle only a few hundred vertices.
+ *  <p>
+ *  Vertices are contracted in order of increasing <em>edge difference</em>
+ *  (shortcuts a contraction would add, less the arcs it removes, plus the
+ *  number of neighbours already contracted), which is kept up to date
+ *  lazily: a vertex taken off the priority queue is re-evaluated and put
+ *  back if it is no longer the minimum. Contracting v removes it from the
+ *  remaining graph and, for each pair of arcs u->v->w, adds a shortcut u->w
+ *  unless a bounded <em>witness search</em> from u that avoids v finds a
+ *  path to w that is no longer.
+ *  <p>
+ *  A query runs Dijkstra forward from s over arcs that lead to
+ *  higher-ranked vertices and backward from t likewise; the shortest path
+ *  passes through its highest-ranked vertex, where the two searches meet.
+ *  Shortcuts remember the two arcs they replace, so the path is unpacked
+ *  back into the original <tt>DirectedEdge</tt>s of the graph.
+ *  <p>
+ *  The hierarchy describes the graph as it was when it was built; see
+ *  <tt>CHSP</tt> for an engine that copes with later changes.
+ */
+public class ContractionHierarchy {
+    private static final int WITNESS_LIMIT = 500;    // most vertices a witness search may settle
+
+    private final int V;
+
+    // every arc, original or shortcut
+    private int A;
+    private int[] tail, head;
+    private double[] weight;
+    private int[] first, second;     // a shortcut stands for arcs first then second; -1 for original arcs
+    private DirectedEdge[] edge;     // the original edge of an original arc, null for shortcuts
+    private int shortcuts;
+
+    private final int[] rank;        // rank[v] = position of v in the contraction order
+
+    // upward search graphs: arcs leaving v to higher ranks, and arcs entering v from higher ranks
+    private int[] upOffsets, upArcs;
+    private int[] downOffsets, downArcs;
+
+    // contraction-time adjacency, as growable lists of arc ids
+    private int[][] out, in;
+    private int[] outSize, inSize;
+    private boolean[] contracted;
+
+    // witness search and query workspace, reused between searches
+    private final double[] distF, distB;
+    private final int[] arcF, arcB;              // arc by which each vertex was reached
+    private final int[] stampF, stampB;
+    private final DoubleIndexMinPQ pqF, pqB;
+    private int stamp;
+
+   /**
+     * Build the hierarchy for the current edges of G.
+     */
+    public ContractionHierarchy(EdgeWeightedDigraph G) {
+        this(G, null);
+    }
+
+   /**
+     * Build the hierarchy for the current edges of G, reporting progress
+     * after every tenth of the vertices to the given stream (if not null).
+     */
+    public ContractionHierarchy(EdgeWeightedDigraph G, PrintStream progress) {
+        this(new CSRDigraph(G), slotEdges(G), progress);
+    }
+
+   /**
+     * Build the hierarchy for a frozen digraph. edges[i] is the original edge
+     * held in slot i, which unpacked paths return; if edges is null, paths
+     * are made of new DirectedEdges built from the slots.
+     */
+    public ContractionHierarchy(CSRDigraph G, DirectedEdge[] edges, PrintStream progress) {
+        V = G.V();
+        rank = new int[V];
+        distF = new double[V];
+        distB = new double[V];
+        arcF = new int[V];
+        arcB = new int[V];
+        stampF = new int[V];
+        stampB = new int[V];
+        pqF = new DoubleIndexMinPQ(V);
+        pqB = new DoubleIndexMinPQ(V);
+
+        long start = System.currentTimeMillis();
+        addOriginalArcs(G, edges);
+        contract(progress, start);
+        buildSearchGraphs();
+
+        // the contraction-time adjacency is no longer needed
+        out = in = null;
+        outSize = inSize = null;
+        contracted = null;
+    }
+
+   /**
+     * Return the edges of G in the order of the slots of <tt>new CSRDigraph(G)</tt>.
+     */
+    public static DirectedEdge[] slotEdges(EdgeWeightedDigraph G) {
+        int E = 0;
+        for (int v = 0; v < G.V(); v++)
+            E += G.outdegree(v);
+        DirectedEdge[] edges = new DirectedEdge[E];
+        int i = 0;
+        for (int v = 0; v < G.V(); v++)
+            for (DirectedEdge e : G.adj(v))
+                edges[i++] = e;
+        return edges;
+    }
+
+    // one arc per ordered pair of distinct vertices, the lightest of any parallel edges
+    private void addOriginalArcs(CSRDigraph G, DirectedEdge[] edges) {
+        int capacity = Math.max(16, 2 * G.E());
+        tail = new int[capacity];
+        head = new int[capacity];
+        weight = new double[capacity];
+        first = new int[capacity];
+        second = new int[capacity];
+        edge = new DirectedEdge[capacity];
+        out = new int[V][];
+        in = new int[V][];
+        outSize = new int[V];
+        inSize = new int[V];
+        contracted = new boolean[V];
+        for (int v = 0; v < V; v++) {
+            out[v] = new int[Math.max(2, G.outdegree(v))];
+            in[v] = new int[2];
+        }
+
+        int[] arcTo = new int[V];       // arcTo[w] = arc v->w added for the current v, if stampF[w] == v + 1
+        for (int v = 0; v < V; v++) {
+            for (int i = G.begin(v); i < G.end(v); i++) {
+                int w = G.target(i);
+                if (w == v) continue;                   // self-loops are never on a shortest path
+                DirectedEdge e = (edges != null) ? edges[i] : G.edge(i);
+                if (stampF[w] == v + 1) {
+                    int a = arcTo[w];
+                    if (G.weight(i) < weight[a]) { weight[a] = G.weight(i); edge[a] = e; }
+                    continue;
+                }
+                stampF[w] = v + 1;
+                arcTo[w] = addArc(v, w, G.weight(i), -1, -1, e);
+            }
+        }
+        Arrays.fill(stampF, 0);
+    }
+
+    private int addArc(int u, int w, double wt, int a, int b, DirectedEdge e) {
+        if (A == tail.length) {
+            int capacity = 2 * A;
+            tail = Arrays.copyOf(tail, capacity);
+            head = Arrays.copyOf(head, capacity);
+            weight = Arrays.copyOf(weight, capacity);
+            first = Arrays.copyOf(first, capacity);
+            second = Arrays.copyOf(second, capacity);
+            edge = Arrays.copyOf(edge, capacity);
+        }
+        tail[A] = u; head[A] = w; weight[A] = wt;
+        first[A] = a; second[A] = b; edge[A] = e;
+        if (outSize[u] == out[u].length) out[u] = Arrays.copyOf(out[u], 2 * outSize[u]);
+        out[u][outSize[u]++] = A;
+        if (inSize[w] == in[w].length) in[w] = Arrays.copyOf(in[w], 2 * inSize[w]);
+        in[w][inSize[w]++] = A;
+        return A++;
+    }
+
+    // contract every vertex in order of edge difference, updated lazily
+    private void contract(PrintStream progress, long start) {
+        int[] deleted = new int[V];     // deleted[v] = number of contracted neighbours of v
+        DoubleIndexMinPQ order = new DoubleIndexMinPQ(V);
+        for (int v = 0; v < V; v++)
+            order.insert(v, priority(v, deleted));
+
+        int done = 0;
+        int report = Math.max(1, V / 10);
+        while (!order.isEmpty()) {
+            int v = order.delMin();
+            double p = priority(v, deleted);
+            if (!order.isEmpty() && p > order.minKey()) {
+                order.insert(v, p);
+                continue;
+            }
+
+            shortcut(v, true);
+            contracted[v] = true;
+            rank[v] = done++;
+            for (int j = 0; j < outSize[v]; j++) deleted[head[out[v][j]]]++;
+            for (int j = 0; j < inSize[v]; j++)  deleted[tail[in[v][j]]]++;
+
+            if (progress != null && (done % report == 0 || done == V))
+                progress.printf("contracted %d%% of %d vertices, %d shortcuts, %d ms%n",
+                                100L * done / V, V, shortcuts, System.currentTimeMillis() - start);
+        }
+    }
+
+    private double priority(int v, int[] deleted) {
+        int degree = 0;
+        for (int j = 0; j < outSize[v]; j++) if (!contracted[head[out[v][j]]]) degree++;
+        for (int j = 0; j < inSize[v]; j++)  if (!contracted[tail[in[v][j]]]) degree++;
+        return shortcut(v, false) - degree + deleted[v];
+    }
+
+    // count, and if add is true also insert, the shortcuts that contracting v needs
+    private int shortcut(int v, boolean add) {
+        double maxOut = 0.0;
+        for (int j = 0; j < outSize[v]; j++) {
+            int b = out[v][j];
+            if (!contracted[head[b]]) maxOut = Math.max(maxOut, weight[b]);
+        }
+
+        int count = 0;
+        int inCount = inSize[v];                 // shortcuts added below never enter v
+        for (int i = 0; i < inCount; i++) {
+            int a = in[v][i];
+            int u = tail[a];
+            if (contracted[u]) continue;
+            witness(u, v, weight[a] + maxOut);
+            int outCount = outSize[v];
+            for (int j = 0; j < outCount; j++) {
+                int b = out[v][j];
+                int w = head[b];
+                if (contracted[w] || w == u) continue;
+                double through = weight[a] + weight[b];
+                if (stampF[w] == stamp && distF[w] <= through) continue;    // witness found
+                count++;
+                if (add) {
+                    addArc(u, w, through, a, b, null);
+                    shortcuts++;
+                }
+            }
+        }
+        return count;
+    }
+
+    // Dijkstra from s over uncontracted vertices other than skip, up to distance limit
+    private void witness(int s, int skip, double limit) {
+        stamp++;
+        pqF.clear();
+        stampF[s] = stamp;
+        distF[s] = 0.0;
+        pqF.insert(s, 0.0);
+        int settled = 0;
+        while (!pqF.isEmpty() && pqF.minKey() <= limit && settled++ < WITNESS_LIMIT) {
+            int x = pqF.delMin();
+            for (int j = 0; j < outSize[x]; j++) {
+                int a = out[x][j];
+                int y = head[a];
+                if (contracted[y] || y == skip) continue;
+                double d = distF[x] + weight[a];
+                if (stampF[y] != stamp || d < distF[y]) {
+                    stampF[y] = stamp;
+                    distF[y] = d;
+                    pqF.insertOrDecrease(y, d);
+                }
+            }
+        }
+    }
+
+    // group every arc by its lower-ranked end, for the upward searches
+    private void buildSearchGraphs() {
+        upOffsets = new int[V + 1];
+        downOffsets = new int[V + 1];
+        for (int a = 0; a < A; a++) {
+            if (rank[head[a]] > rank[tail[a]]) upOffsets[tail[a] + 1]++;
+            else                               downOffsets[head[a] + 1]++;
+        }
+        for (int v = 0; v < V; v++) {
+            upOffsets[v + 1] += upOffsets[v];
+            downOffsets[v + 1] += downOffsets[v];
+        }
+        upArcs = new int[upOffsets[V]];
+        downArcs = new int[downOffsets[V]];
+        int[] nextUp = Arrays.copyOf(upOffsets, V);
+        int[] nextDown = Arrays.copyOf(downOffsets, V);
+        for (int a = 0; a < A; a++) {
+            if (rank[head[a]] > rank[tail[a]]) upArcs[nextUp[tail[a]]++] = a;
+            else                               downArcs[nextDown[head[a]]++] = a;
+        }
+    }
+
+   /**
+     * Return the number of vertices.
+     */
+    public int V() {
+        return V;
+    }
+
+   /**
+     * Return the number of shortcuts added by the contraction.
+     */
+    public int shortcuts() {
+        return shortcuts;
+    }
+
+   /**
+     * Return the position of v in the contraction order.
+     */
+    public int rank(int v) {
+        return rank[v];
+    }
+
+   /**
+     * Return a shortest path from s to t, unpacked into original edges.
+     */
+    public Path query(int s, int t) {
+        if (s < 0 || s >= V || t < 0 || t >= V)
+            throw new IndexOutOfBoundsException("vertex " + (s < 0 || s >= V ? s : t) + " is not between 0 and " + (V - 1));
+        if (stamp == Integer.MAX_VALUE) {
+            Arrays.fill(stampF, 0);
+            Arrays.fill(stampB, 0);
+            stamp = 0;
+        }
+        stamp++;
+        pqF.clear();
+        pqB.clear();
+        stampF[s] = stamp; distF[s] = 0.0; arcF[s] = -1; pqF.insert(s, 0.0);
+        stampB[t] = stamp; distB[t] = 0.0; arcB[t] = -1; pqB.insert(t, 0.0);
+
+        double best = Double.POSITIVE_INFINITY;
+        int meet = -1;
+        int settled = 0;
+        while (true) {
+            double minF = pqF.isEmpty() ? Double.POSITIVE_INFINITY : pqF.minKey();
+            double minB = pqB.isEmpty() ? Double.POSITIVE_INFINITY : pqB.minKey();
+            if (minF >= best && minB >= best) break;
+            settled++;
+            if (minF <= minB) {
+                int v = pqF.delMin();
+                if (stampB[v] == stamp && distF[v] + distB[v] < best) { best = distF[v] + distB[v]; meet = v; }
+                for (int j = upOffsets[v]; j < upOffsets[v + 1]; j++) {
+                    int a = upArcs[j], w = head[a];
+                    double d = distF[v] + weight[a];
+                    if (stampF[w] != stamp || d < distF[w]) {
+                        stampF[w] = stamp; distF[w] = d; arcF[w] = a;
+                        pqF.insertOrDecrease(w, d);
+                    }
+                }
+            }
+            else {
+                int v = pqB.delMin();
+                if (stampF[v] == stamp && distF[v] + distB[v] < best) { best = distF[v] + distB[v]; meet = v; }
+                for (int j = downOffsets[v]; j < downOffsets[v + 1]; j++) {
+                    int a = downArcs[j], u = tail[a];
+                    double d = distB[v] + weight[a];
+                    if (stampB[u] != stamp || d < distB[u]) {
+                        stampB[u] = stamp; distB[u] = d; arcB[u] = a;
+                        pqB.insertOrDecrease(u, d);
+                    }
+                }
+            }
+        }
+
+        if (meet == -1) return Path.none(settled);
+
+        // arcs from meet back to s, then from meet on to t
+        Stack<DirectedEdge> path = new Stack<DirectedEdge>();
+        int[] pending = new int[16];
+        int n = 0;
+        for (int v = meet; arcB[v] != -1; v = head[arcB[v]]) {
+            if (n == pending.length) pending = Arrays.copyOf(pending, 2 * n);
+            pending[n++] = arcB[v];
+        }
+        for (int i = n - 1; i >= 0; i--)
+            unpack(pending[i], path);
+        for (int v = meet; arcF[v] != -1; v = tail[arcF[v]])
+            unpack(arcF[v], path);
+        return new Path(path, best, settled);
+    }
+
+    // push the original edges of arc a onto path, last edge first
+    private void unpack(int a, Stack<DirectedEdge> path) {
+        int[] todo = new int[16];
+        int n = 0;
+        todo[n++] = a;
+        while (n > 0) {
+            int x = todo[--n];
+            if (first[x] == -1) { path.push(edge[x]); continue; }
+            if (n + 2 > todo.length) todo = Arrays.copyOf(todo, 2 * todo.length);
+            todo[n++] = first[x];        // popped after second, so pushed onto path after it
+            todo[n++] = second[x];
+        }
+    }
+
+    // a W-by-H grid with both directions of every link and random weights 1..100
+    private static EdgeWeightedDigraph grid(int W, int H) {
+        Random random = new Random(W * 31 + H);
+        EdgeWeightedDigraph G = new EdgeWeightedDigraph(W * H);
+        for (int y = 0; y < H; y++) {
+            for (int x = 0; x < W; x++) {
+                int v = y * W + x;
+                if (x + 1 < W) link(G, v, v + 1, 1 + random.nextInt(100));
+                if (y + 1 < H) link(G, v, v + W, 1 + random.nextInt(100));
+            }
+        }
+        return G;
+    }
+
+    private static void link(EdgeWeightedDigraph G, int u, int v, double w) {
+        G.addEdge(new DirectedEdge(u, v, w));
+        G.addEdge(new DirectedEdge(v, u, w));
+    }
+
+    public static void main(String[] args) throws Exception {
+        EdgeWeightedDigraph G;
+        int queries;
+        if (args[0].equals("grid")) {
+            G = grid(Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+            queries = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+        }
+        else {
+            G = GraphFile.read(args[0]);
+            queries = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        }
+
+        long start = System.nanoTime();
+        ContractionHierarchy ch = new ContractionHierarchy(G, System.out);
+        System.out.printf("preprocessing took %.0f ms, %d shortcuts for %d edges%n",
+                          (System.nanoTime() - start) / 1e6, ch.shortcuts(), G.E());
+
+        Random random = new Random(0);
+        int[] s = new int[queries], t = new int[queries];
+        for (int i = 0; i < queries; i++) {
+            s[i] = random.nextInt(G.V());
+            t[i] = random.nextInt(G.V());
+        }
+
+        PointToPointSP p2p = new PointToPointSP(G);
+        long full = 0, early = 0, hierarchy = 0, settledEarly = 0, settledCH = 0;
+        for (int i = 0; i < queries; i++) {
+            long t0 = System.nanoTime();
+            double d = new DijkstraSP(G, s[i]).distTo(t[i]);
+            long t1 = System.nanoTime();
+            Path p = p2p.query(s[i], t[i]);
+            long t2 = System.nanoTime();
+            Path c = ch.query(s[i], t[i]);
+            long t3 = System.nanoTime();
+            full += t1 - t0; early += t2 - t1; hierarchy += t3 - t2;
+            settledEarly += p.settled(); settledCH += c.settled();
+            if (d != c.weight()) System.err.println("mismatch " + s[i] + "->" + t[i] + ": " + d + " vs " + c.weight());
+        }
+        System.out.printf("DijkstraSP          %10.3f ms/query%n", full / 1e6 / queries);
+        System.out.printf("PointToPointSP      %10.3f ms/query %8d settled/query  %6.1fx%n",
+                          early / 1e6 / queries, settledEarly / queries, (double) full / early);
+        System.out.printf("ContractionHierarchy%10.3f ms/query %8d settled/query  %6.1fx%n",
+                          hierarchy / 1e6 / queries, settledCH / queries, (double) full / hierarchy);
+    }
+}
@@ -0,0 +1,319 @@
+/*************************************************************************
+ *  Compilation:  javac DeltaSteppingSP.java
+ *  Execution:    java DeltaSteppingSP graph.txt [delta] [maxThreads]
+ *  Dependencies: EdgeWeightedDigraph.java CSRDigraph.java DijkstraSP.java
+ *                ShortestPathTree.java Stack.java DirectedEdge.java
+ *
+ *  Delta-stepping: single-source shortest paths with the relaxations of
+ *  each distance band run in parallel on a fork-join pool.
+ *  Assumes all weights are nonnegative.
+ *
+ *************************************************************************/
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ *  The <tt>DeltaSteppingSP</tt> class computes the shortest path tree of a
+ *  source with the delta-stepping algorithm of Meyer and Sanders.
+ *  <p>
+ *  Vertices wait in buckets of width delta by tentative distance. Edges
+ *  no heavier than delta are <em>light</em>, the others <em>heavy</em>.
+ *  The lowest nonempty bucket is emptied repeatedly, relaxing the light
+ *  edges of all its vertices at once, until no vertex falls back into it;
+ *  then the heavy edges of every vertex it held are relaxed, once, since
+ *  they can only reach later buckets. Within each step the vertices are
+ *  split across fork-join tasks. A small delta approaches Dijkstra's
+ *  algorithm (little wasted work, little parallelism), a large one
+ *  approaches Bellman-Ford.
+ *  <p>
+ *  Each vertex's slots are reordered once so that its light edges come
+ *  first. Distances are stored as the bits of nonnegative doubles, whose
+ *  order as longs is their order as numbers, and a relaxation that
+ *  improves one takes one of a fixed set of locks, so the distance and
+ *  the tree slot of a vertex always change together. The graph is a
+ *  frozen <tt>CSRDigraph</tt>, safe to read from every thread.
+ *  <p>
+ *  The accessors are those of <tt>DijkstraSP</tt>, and the distances are
+ *  the same; where two shortest paths tie, the tree may hold the other one.
+ */
+public class DeltaSteppingSP implements ShortestPathTree {
+    private static final int LOCKS = 1 << 10;       // lock striping for distance updates
+    private static final int GRAIN = 256;           // vertices per leaf task
+
+    private final CSRDigraph G;
+    private final double delta;
+    private final AtomicLongArray dist;             // bits of distTo[v]
+    private final int[] slotTo;                     // slotTo[v] = slot of last edge on shortest s->v path
+    private final DirectedEdge[] edgeTo;            // edgeTo[v] = that edge, built at the end
+    private final Object[] locks;
+    private final int[] order;                      // slots of each vertex, light edges first
+    private final int[] lightEnd;                   // order[G.begin(v) .. lightEnd[v]-1] are the light edges of v
+    private int phases;                             // light relaxation steps taken
+
+   /**
+     * Compute the shortest path tree of s in the current edges of G, on the
+     * common pool, with delta the mean edge weight.
+     */
+    public DeltaSteppingSP(EdgeWeightedDigraph G, int s) {
+        this(new CSRDigraph(G), s);
+    }
+
+   /**
+     * Compute the shortest path tree of s in the frozen digraph G, on the
+     * common pool, with delta the mean edge weight.
+     */
+    public DeltaSteppingSP(CSRDigraph G, int s) {
+        this(G, s, meanWeight(G), ForkJoinPool.commonPool());
+    }
+
+   /**
+     * Compute the shortest path tree of s in the frozen digraph G on the given pool.
+     * @throws java.lang.IllegalArgumentException if delta is not positive, or a weight
+     *         is negative, infinite or NaN
+     */
+    public DeltaSteppingSP(CSRDigraph G, int s, double delta, ForkJoinPool pool) {
+        if (!(delta > 0)) throw new IllegalArgumentException("delta must be positive");
+        if (s < 0 || s >= G.V())
+            throw new IndexOutOfBoundsException("vertex " + s + " is not between 0 and " + (G.V() - 1));
+        this.G = G;
+        this.delta = delta;
+        int V = G.V();
+        dist = new AtomicLongArray(V);
+        slotTo = new int[V];
+        edgeTo = new DirectedEdge[V];
+        locks = new Object[LOCKS];
+        for (int i = 0; i < LOCKS; i++)
+            locks[i] = new Object();
+
+        // light edges first, each group in slot order
+        order = new int[G.E()];
+        lightEnd = new int[V];
+        double maxWeight = 0.0;
+        for (int v = 0; v < V; v++) {
+            int k = G.begin(v);
+            for (int i = G.begin(v); i < G.end(v); i++) {
+                if (!(G.weight(i) >= 0) || G.weight(i) == Double.POSITIVE_INFINITY)
+                    throw new IllegalArgumentException("weight " + G.weight(i) + " is not a nonnegative finite number");
+                maxWeight = Math.max(maxWeight, G.weight(i));
+                if (G.weight(i) <= delta) order[k++] = i;
+            }
+            lightEnd[v] = k;
+            for (int i = G.begin(v); i < G.end(v); i++)
+                if (G.weight(i) > delta) order[k++] = i;
+        }
+
+        long inf = Double.doubleToRawLongBits(Double.POSITIVE_INFINITY);
+        for (int v = 0; v < V; v++) {
+            dist.set(v, inf);
+            slotTo[v] = -1;
+        }
+        dist.set(s, Double.doubleToRawLongBits(0.0));
+
+        run(s, maxWeight, pool);
+
+        for (int v = 0; v < V; v++)
+            if (slotTo[v] != -1) edgeTo[v] = G.edge(slotTo[v]);
+    }
+
+    private static double meanWeight(CSRDigraph G) {
+        double sum = 0.0;
+        for (int i = 0; i < G.E(); i++)
+            sum += G.weight(i);
+        double mean = (G.E() == 0) ? 1.0 : sum / G.E();
+        return (mean > 0) ? mean : 1.0;
+    }
+
+    // the bucket loop; buckets are used round-robin, since all tentative
+    // distances lie within maxWeight of the bucket being emptied
+    private void run(int s, double maxWeight, ForkJoinPool pool) {
+        int V = G.V();
+        double buckets = Math.floor(maxWeight / delta) + 2;    // in floating point, so it cannot wrap around
+        if (buckets > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("delta " + delta + " is too small for weights up to " + maxWeight);
+        int n = (int) buckets;
+        IntList[] bucket = new IntList[n];
+        for (int b = 0; b < n; b++)
+            bucket[b] = new IntList();
+        int[] mark = new int[V];         // mark[v] == step iff v is in the current frontier
+        int[] held = new int[V];         // held[v] == round iff v was settled in the current bucket
+        int step = 0, round = 0;
+
+        bucket[0].add(s);
+        int waiting = 1;                 // entries in all buckets, some of them out of date
+        for (long i = 0; waiting > 0; i++) {
+            IntList current = bucket[(int) (i % n)];      // bucket i, stored round-robin
+            if (current.size == 0) continue;
+            round++;
+            IntList settled = new IntList();
+
+            // light edges, until the bucket stays empty
+            while (current.size > 0) {
+                step++;
+                IntList frontier = new IntList();
+                for (int k = 0; k < current.size; k++) {
+                    int v = current.a[k];
+                    if (mark[v] == step || bucketOf(distTo(v)) != i) continue;    // duplicate or moved on
+                    mark[v] = step;
+                    frontier.add(v);
+                    if (held[v] != round) { held[v] = round; settled.add(v); }
+                }
+                waiting -= current.size;
+                current.size = 0;
+                if (frontier.size == 0) break;
+                phases++;
+                waiting += file(bucket, pool.invoke(new RelaxTask(frontier, 0, frontier.size, true)));
+            }
+
+            // heavy edges, once
+            if (settled.size > 0)
+                waiting += file(bucket, pool.invoke(new RelaxTask(settled, 0, settled.size, false)));
+        }
+    }
+
+    private long bucketOf(double d) {
+        return (long) Math.floor(d / delta);
+    }
+
+    // put each improved vertex in the bucket of its new distance
+    private int file(IntList[] bucket, IntList improved) {
+        for (int k = 0; k < improved.size; k++) {
+            int v = improved.a[k];
+            bucket[(int) (bucketOf(distTo(v)) % bucket.length)].add(v);
+        }
+        return improved.size;
+    }
+
+    // relax the light (or heavy) edges of vertices[lo .. hi-1], returning the vertices improved
+    private class RelaxTask extends RecursiveTask<IntList> {
+        private static final long serialVersionUID = 1L;
+        private final IntList vertices;
+        private final int lo, hi;
+        private final boolean light;
+
+        RelaxTask(IntList vertices, int lo, int hi, boolean light) {
+            this.vertices = vertices;
+            this.lo = lo;
+            this.hi = hi;
+            this.light = light;
+        }
+
+        protected IntList compute() {
+            if (hi - lo > GRAIN) {
+                int mid = (lo + hi) >>> 1;
+                RelaxTask left = new RelaxTask(vertices, lo, mid, light);
+                left.fork();
+                IntList right = new RelaxTask(vertices, mid, hi, light).compute();
+                IntList improved = left.join();
+                improved.addAll(right);
+                return improved;
+            }
+            IntList improved = new IntList();
+            for (int k = lo; k < hi; k++) {
+                int v = vertices.a[k];
+                double d = distTo(v);
+                int from = light ? G.begin(v) : lightEnd[v];
+                int to = light ? lightEnd[v] : G.end(v);
+                for (int j = from; j < to; j++) {
+                    int i = order[j];
+                    if (relax(G.target(i), d + G.weight(i), i)) improved.add(G.target(i));
+                }
+            }
+            return improved;
+        }
+    }
+
+    // lower the distance of w to d by way of slot i, if that is an improvement
+    private boolean relax(int w, double d, int i) {
+        long bits = Double.doubleToRawLongBits(d);
+        if (bits >= dist.get(w)) return false;
+        synchronized (locks[w & (LOCKS - 1)]) {
+            if (bits >= dist.get(w)) return false;
+            dist.set(w, bits);
+            slotTo[w] = i;
+            return true;
+        }
+    }
+
+    // a growable list of vertices
+    private static class IntList {
+        int[] a = new int[4];
+        int size;
+
+        void add(int v) {
+            if (size == a.length) a = Arrays.copyOf(a, 2 * size);
+            a[size++] = v;
+        }
+
+        void addAll(IntList that) {
+            if (size + that.size > a.length) a = Arrays.copyOf(a, Math.max(2 * a.length, size + that.size));
+            System.arraycopy(that.a, 0, a, size, that.size);
+            size += that.size;
+        }
+    }
+
+    // length of shortest path from s to v
+    public double distTo(int v) {
+        return Double.longBitsToDouble(dist.get(v));
+    }
+
+    // is there a path from s to v?
+    public boolean hasPathTo(int v) {
+        return distTo(v) < Double.POSITIVE_INFINITY;
+    }
+
+    // last edge on shortest path from s to v, null if v is s or unreachable
+    public DirectedEdge edgeTo(int v) {
+        return edgeTo[v];
+    }
+
+    // shortest path from s to v as an Iterable, null if no such path
+    public Iterable<DirectedEdge> pathTo(int v) {
+        if (!hasPathTo(v)) return null;
+        Stack<DirectedEdge> path = new Stack<DirectedEdge>();
+        for (DirectedEdge e = edgeTo[v]; e != null; e = edgeTo[e.from()]) {
+            path.push(e);
+        }
+        return path;
+    }
+
+    // the bucket width used
+    public double delta() {
+        return delta;
+    }
+
+    // light relaxation steps taken, each one a parallel sweep over a frontier
+    public int phases() {
+        return phases;
+    }
+
+    // time DijkstraSP, then delta-stepping on 1, 2, 4, ... threads
+    public static void main(String[] args) throws Exception {
+        CSRDigraph G = new CSRDigraph(GraphFile.read(args[0]));
+        double delta = args.length > 1 ? Double.parseDouble(args[1]) : meanWeight(G);
+        int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int s = 0;
+
+        long t0 = System.nanoTime();
+        DijkstraSP reference = new DijkstraSP(G, s);
+        double dijkstra = (System.nanoTime() - t0) / 1e6;
+        System.out.printf("DijkstraSP            %10.1f ms%n", dijkstra);
+
+        double single = 0;
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            long t1 = System.nanoTime();
+            DeltaSteppingSP sp = new DeltaSteppingSP(G, s, delta, pool);
+            double ms = (System.nanoTime() - t1) / 1e6;
+            pool.shutdown();
+            if (threads == 1) single = ms;
+            for (int v = 0; v < G.V(); v++)
+                if (sp.distTo(v) != reference.distTo(v))
+                    throw new IllegalStateException("distance to " + v + " differs from DijkstraSP");
+            System.out.printf("delta-stepping %3d thr %10.1f ms  %5.2fx vs 1 thread  %5.2fx vs DijkstraSP  (delta %.1f, %d phases)%n",
+                              threads, ms, single / ms, dijkstra / ms, sp.delta(), sp.phases());
+            if (threads < maxThreads && threads * 2 > maxThreads) threads = maxThreads / 2;   // end on maxThreads
+        }
+    }
+}
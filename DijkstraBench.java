@@ -0,0 +1,103 @@
+/*************************************************************************
+ *  Compilation:  javac DijkstraBench.java
+ *  Execution:    java DijkstraBench graph.txt [queries]
+ *                java DijkstraBench V E [queries]
+ *  Dependencies: DijkstraSP.java IndexMinPQ.java GraphFile.java
+ *
+ *  Measures allocation and time per single-source query for Dijkstra's
+ *  algorithm with the boxed IndexMinPQ<Double> it used to run on, and
+ *  with the primitive DoubleIndexMinPQ as a binary and as a 4-ary heap.
+ *
+ *  % java DijkstraBench graph2.txt
+ *  15 vertices, 60 edges, 1000 queries
+ *  boxed IndexMinPQ<Double>             1237 bytes/query      0.009 ms/query
+ *  DoubleIndexMinPQ, binary              936 bytes/query      0.014 ms/query
+ *  DoubleIndexMinPQ, 4-ary               936 bytes/query      0.014 ms/query
+ *
+ *  % java DijkstraBench 1000000 5000000 10
+ *  1000000 vertices, 5000000 edges, 10 queries
+ *  boxed IndexMinPQ<Double>         58643670 bytes/query   3782.148 ms/query
+ *  DoubleIndexMinPQ, binary         28000233 bytes/query   3667.172 ms/query
+ *  DoubleIndexMinPQ, 4-ary          28000233 bytes/query   3085.963 ms/query
+ *
+ *  What remains is the O(V) arrays of the search itself.
+ *
+ *************************************************************************/
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+public class DijkstraBench {
+
+    // the search DijkstraSP ran before it switched to DoubleIndexMinPQ
+    private static double[] boxed(EdgeWeightedDigraph G, int s) {
+        double[] distTo = new double[G.V()];
+        DirectedEdge[] edgeTo = new DirectedEdge[G.V()];
+        for (int v = 0; v < G.V(); v++)
+            distTo[v] = Double.POSITIVE_INFINITY;
+        distTo[s] = 0.0;
+        IndexMinPQ<Double> pq = new IndexMinPQ<Double>(G.V());
+        pq.insert(s, distTo[s]);
+        while (!pq.isEmpty()) {
+            int v = pq.delMin();
+            for (DirectedEdge e : G.adj(v)) {
+                int w = e.to();
+                if (distTo[w] > distTo[v] + e.weight()) {
+                    distTo[w] = distTo[v] + e.weight();
+                    edgeTo[w] = e;
+                    if (pq.contains(w)) pq.changeKey(w, distTo[w]);
+                    else                pq.insert(w, distTo[w]);
+                }
+            }
+        }
+        return distTo;
+    }
+
+    private static long allocated() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    // runs the given engine from the given sources and prints bytes and time per query
+    private static double run(String name, EdgeWeightedDigraph G, int[] sources, int engine) {
+        double checksum = 0.0;
+        for (int pass = 0; pass < 2; pass++) {           // first pass warms up the JIT
+            long bytes = allocated();
+            long start = System.nanoTime();
+            for (int s : sources) {
+                if      (engine == 0) checksum += boxed(G, s)[sources[0]];
+                else if (engine == 2) checksum += new DijkstraSP(G, s, 2).distTo(sources[0]);
+                else                  checksum += new DijkstraSP(G, s, 4).distTo(sources[0]);
+            }
+            long nanos = System.nanoTime() - start;
+            bytes = allocated() - bytes;
+            if (pass == 1)
+                System.out.printf("%-28s %12d bytes/query %10.3f ms/query%n", name,
+                                  bytes / sources.length, nanos / 1e6 / sources.length);
+        }
+        return checksum;
+    }
+
+    public static void main(String[] args) throws Exception {
+        EdgeWeightedDigraph G;
+        int queries;
+        if (args.length >= 2 && args[0].matches("\\d+")) {
+            G = new EdgeWeightedDigraph(Integer.parseInt(args[0]), Integer.parseInt(args[1]));
+            queries = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        }
+        else {
+            G = GraphFile.read(args[0]);
+            queries = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        }
+
+        Random random = new Random(0);
+        int[] sources = new int[queries];
+        for (int i = 0; i < queries; i++)
+            sources[i] = random.nextInt(G.V());
+
+        System.out.println(G.V() + " vertices, " + G.E() + " edges, " + queries + " queries");
+        double a = run("boxed IndexMinPQ<Double>", G, sources, 0);
+        double b = run("DoubleIndexMinPQ, binary", G, sources, 2);
+        double c = run("DoubleIndexMinPQ, 4-ary", G, sources, 4);
+        if (a != b || a != c) System.err.println("engines disagree: " + a + " " + b + " " + c);
+    }
+}
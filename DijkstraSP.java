@@ -1,19 +1,29 @@
 /*************************************************************************
  *  Compilation:  javac DijkstraSP.java
  *  Execution:    java DijkstraSP V E
- *  Dependencies: EdgeWeightedDigraph.java IndexMinPQ.java Stack.java DirectedEdge.java
+ *  Dependencies: WeightedDigraph.java CSRDigraph.java DoubleIndexMinPQ.java
+ *                ShortestPathTree.java Stack.java DirectedEdge.java
  *
  *  Dijkstra's algorithm. Computes the shortest path tree.
  *  Assumes all weights are nonnegative.
  *
+ *  The priority queue holds primitive double keys, so relaxations never
+ *  box a Double. It is a binary heap unless another arity is requested;
+ *  a binary heap breaks ties exactly as IndexMinPQ<Double> did.
+ *
  *************************************************************************/
 
-public class DijkstraSP {
+public class DijkstraSP implements ShortestPathTree {
     private double[] distTo;          // distTo[v] = distance  of shortest s->v path
     private DirectedEdge[] edgeTo;    // edgeTo[v] = last edge on shortest s->v path
-    private IndexMinPQ<Double> pq;    // priority queue of vertices
+    private DoubleIndexMinPQ pq;      // priority queue of vertices
+
+    public DijkstraSP(WeightedDigraph G, int s) {
+        this(G, s, 2);
+    }
 
-    public DijkstraSP(EdgeWeightedDigraph G, int s) {
+    // d is the arity of the heap, e.g. 4 for a 4-ary heap
+    public DijkstraSP(WeightedDigraph G, int s, int d) {
         distTo = new double[G.V()];
         edgeTo = new DirectedEdge[G.V()];
         for (int v = 0; v < G.V(); v++)
@@ -21,26 +31,64 @@ public class DijkstraSP {
         distTo[s] = 0.0;
 
         // relax vertices in order of distance from s
-        pq = new IndexMinPQ<Double>(G.V());
+        pq = new DoubleIndexMinPQ(G.V(), d);
         pq.insert(s, distTo[s]);
         while (!pq.isEmpty()) {
             int v = pq.delMin();
             for (DirectedEdge e : G.adj(v))
                 relax(e);
         }
+        pq = null;                    // only needed during the search; trees may be kept
 
         // check optimality conditions
         assert check(G, s);
     }
 
+    // same search over a frozen CSR digraph; relaxes slots in adj(v) order, so
+    // ties are broken exactly as they are on the EdgeWeightedDigraph it was built from
+    public DijkstraSP(CSRDigraph G, int s) {
+        this(G, s, 2);
+    }
+
+    public DijkstraSP(CSRDigraph G, int s, int d) {
+        distTo = new double[G.V()];
+        edgeTo = new DirectedEdge[G.V()];
+        int[] slotTo = new int[G.V()];    // slotTo[v] = CSR slot of edgeTo[v], -1 if none
+        for (int v = 0; v < G.V(); v++) {
+            distTo[v] = Double.POSITIVE_INFINITY;
+            slotTo[v] = -1;
+        }
+        distTo[s] = 0.0;
+
+        pq = new DoubleIndexMinPQ(G.V(), d);
+        pq.insert(s, distTo[s]);
+        while (!pq.isEmpty()) {
+            int v = pq.delMin();
+            for (int i = G.begin(v); i < G.end(v); i++) {
+                int w = G.target(i);
+                if (distTo[w] > distTo[v] + G.weight(i)) {
+                    distTo[w] = distTo[v] + G.weight(i);
+                    slotTo[w] = i;
+                    pq.insertOrDecrease(w, distTo[w]);
+                }
+            }
+        }
+        pq = null;
+
+        // materialize the tree edges once, rather than on every relaxation
+        for (int v = 0; v < G.V(); v++)
+            if (slotTo[v] >= 0) edgeTo[v] = G.edge(slotTo[v]);
+
+        assert check(G, s);
+    }
+
     // relax edge e and update pq if changed
     private void relax(DirectedEdge e) {
         int v = e.from(), w = e.to();
         if (distTo[w] > distTo[v] + e.weight()) {
             distTo[w] = distTo[v] + e.weight();
             edgeTo[w] = e;
-            if (pq.contains(w)) pq.change(w, distTo[w]);
-            else                pq.insert(w, distTo[w]);
+            pq.insertOrDecrease(w, distTo[w]);
         }
     }
 
@@ -54,6 +102,11 @@ public class DijkstraSP {
         return distTo[v] < Double.POSITIVE_INFINITY;
     }
 
+    // last edge on shortest path from s to v, null if v is s or unreachable
+    public DirectedEdge edgeTo(int v) {
+        return edgeTo[v];
+    }
+
     // shortest path from s to v as an Iterable, null if no such path
     public Iterable<DirectedEdge> pathTo(int v) {
         if (!hasPathTo(v)) return null;
@@ -68,7 +121,7 @@ public class DijkstraSP {
     // check optimality conditions:
     // (i) for all edges e:            distTo[e.to()] <= distTo[e.from()] + e.weight()
     // (ii) for all edge e on the SPT: distTo[e.to()] == distTo[e.from()] + e.weight()
-    private boolean check(EdgeWeightedDigraph G, int s) {
+    private boolean check(WeightedDigraph G, int s) {
 
         // check that edge weights are nonnegative
         for (DirectedEdge e : G.edges()) {
@@ -115,4 +168,46 @@ public class DijkstraSP {
         }
         return true;
     }
+
+    // same optimality conditions as above, checked against the CSR slots
+    private boolean check(CSRDigraph G, int s) {
+        for (int i = 0; i < G.E(); i++) {
+            if (G.weight(i) < 0) {
+                System.err.println("negative edge weight detected");
+                return false;
+            }
+        }
+
+        if (distTo[s] != 0.0 || edgeTo[s] != null) {
+            System.err.println("distTo[s] and edgeTo[s] inconsistent");
+            return false;
+        }
+        for (int v = 0; v < G.V(); v++) {
+            if (v == s) continue;
+            if (edgeTo[v] == null && distTo[v] != Double.POSITIVE_INFINITY) {
+                System.err.println("distTo[] and edgeTo[] inconsistent");
+                return false;
+            }
+        }
+
+        for (int v = 0; v < G.V(); v++) {
+            for (int i = G.begin(v); i < G.end(v); i++) {
+                if (distTo[v] + G.weight(i) < distTo[G.target(i)]) {
+                    System.err.println("edge " + G.edge(i) + " not relaxed");
+                    return false;
+                }
+            }
+        }
+
+        for (int w = 0; w < G.V(); w++) {
+            if (edgeTo[w] == null) continue;
+            DirectedEdge e = edgeTo[w];
+            if (w != e.to()) return false;
+            if (distTo[e.from()] + e.weight() != distTo[w]) {
+                System.err.println("edge " + e + " on shortest path not tight");
+                return false;
+            }
+        }
+        return true;
+    }
 }
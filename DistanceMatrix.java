@@ -0,0 +1,328 @@
+/*************************************************************************
+ *  Compilation:  javac DistanceMatrix.java
+ *  Execution:    java DistanceMatrix graph.txt [sources] [targets] [threads]
+ *  Dependencies: EdgeWeightedDigraph.java CSRDigraph.java DoubleIndexMinPQ.java
+ *                DijkstraSP.java IntegerSP.java Stack.java DirectedEdge.java
+ *
+ *  Many-to-many shortest path distances, one Dijkstra search per source,
+ *  run in parallel on a fork-join pool. Assumes all weights are nonnegative.
+ *
+ *************************************************************************/
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ *  The <tt>DistanceMatrix</tt> class computes the table of shortest path
+ *  distances from every vertex of a list of sources to every vertex of a
+ *  list of targets. Entry [i][j] of <tt>distances()</tt> is the distance
+ *  from sources[i] to targets[j], infinite if there is no path.
+ *  <p>
+ *  The searches run on a frozen <tt>CSRDigraph</tt>, which any number of
+ *  threads may read at once, and are split into one fork-join task per
+ *  source. A search takes a workspace (distances, tree slots and priority
+ *  queue, marked with a query number rather than cleared) from a list of
+ *  idle ones and puts it back when done, so there are never more workspaces
+ *  than searches running at once, and the only allocation per source is its
+ *  row of the table. The workspaces belong to the computation and are
+ *  dropped with their list when it ends, not left on the pool's threads.
+ *  A search stops as soon as every target has been settled.
+ *  <p>
+ *  When no trees are kept and every weight is a nonnegative integer, the
+ *  searches run on the bucket queues of <tt>IntegerSP</tt> rather than a
+ *  binary heap. The distances are the same, as sums of such weights are
+ *  exact.
+ *  <p>
+ *  If predecessors are requested, the last tree edge into every vertex
+ *  reached from each source is also kept (one int per vertex per source),
+ *  and <tt>path(i, j)</tt> returns the same path that
+ *  <tt>DijkstraSP.pathTo()</tt> would on the same frozen digraph.
+ */
+public class DistanceMatrix {
+    private final CSRDigraph G;
+    private final int[] sources, targets;
+    private final double[][] dist;        // dist[i][j] = distance from sources[i] to targets[j]
+    private final int[][] slotTo;         // slotTo[i][v] = slot of last edge on path from sources[i] to v, -1 if none;
+                                          // null unless predecessors were requested
+    private final int distinctTargets;
+    private final long maxWeight;         // largest weight if the searches use buckets, -1 if not
+    private ConcurrentLinkedQueue<Workspace> idle;    // workspaces not in use, null once the table is done
+
+    // search state, reused from one source to the next
+    private static class Workspace {
+        final double[] distTo;
+        final int[] slotTo;
+        final int[] reached;              // distTo[v] and slotTo[v] are valid iff reached[v] == query
+        final int[] target;               // v is a target iff target[v] == query
+        final DoubleIndexMinPQ pq;
+        final IntegerSP.MonotoneQueue buckets;    // for integer weights, instead of pq
+        final int[] settled;              // v is settled iff settled[v] == query, with buckets only
+        int query;
+
+        Workspace(int V, long maxWeight) {
+            distTo = new double[V];
+            slotTo = new int[V];
+            reached = new int[V];
+            target = new int[V];
+            pq = (maxWeight == -1) ? new DoubleIndexMinPQ(V) : null;
+            buckets = (maxWeight == -1) ? null : IntegerSP.queue(maxWeight);
+            settled = (maxWeight == -1) ? null : new int[V];
+        }
+    }
+
+   /**
+     * Compute the distances in the current edges of G, on the common pool,
+     * without predecessors.
+     */
+    public DistanceMatrix(EdgeWeightedDigraph G, int[] sources, int[] targets) {
+        this(new CSRDigraph(G), sources, targets, false, ForkJoinPool.commonPool());
+    }
+
+   /**
+     * Compute the distances in the frozen digraph G on the given pool,
+     * keeping the shortest path trees if predecessors is true.
+     * @throws java.lang.IndexOutOfBoundsException if a source or target is not a vertex of G
+     */
+    public DistanceMatrix(CSRDigraph G, int[] sources, int[] targets, boolean predecessors, ForkJoinPool pool) {
+        this.G = G;
+        this.sources = sources.clone();
+        this.targets = targets.clone();
+        validate(this.sources);
+        validate(this.targets);
+
+        boolean[] seen = new boolean[G.V()];
+        int distinct = 0;
+        for (int t : this.targets)
+            if (!seen[t]) { seen[t] = true; distinct++; }
+        distinctTargets = distinct;
+
+        dist = new double[this.sources.length][];
+        slotTo = predecessors ? new int[this.sources.length][] : null;
+        maxWeight = (!predecessors && IntegerSP.isIntegral(G)) ? IntegerSP.maxWeight(G) : -1;
+        if (this.sources.length == 0) return;
+        idle = new ConcurrentLinkedQueue<Workspace>();
+        try {
+            pool.invoke(new SearchTask(0, this.sources.length));
+        }
+        finally {
+            idle = null;
+        }
+    }
+
+    private void validate(int[] vertices) {
+        for (int v : vertices)
+            if (v < 0 || v >= G.V())
+                throw new IndexOutOfBoundsException("vertex " + v + " is not between 0 and " + (G.V() - 1));
+    }
+
+    // the searches from sources[lo .. hi-1], with lo < hi
+    private class SearchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final int lo, hi;
+
+        SearchTask(int lo, int hi) {
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        protected void compute() {
+            if (hi - lo == 1) {
+                search(lo);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new SearchTask(lo, mid), new SearchTask(mid, hi));
+        }
+    }
+
+    // Dijkstra from sources[i], relaxing slots in order as DijkstraSP does, until every target is settled
+    private void search(int i) {
+        Workspace w = idle.poll();
+        if (w == null) w = new Workspace(G.V(), maxWeight);
+        try {
+            search(i, w);
+        }
+        finally {
+            idle.add(w);
+        }
+    }
+
+    private void search(int i, Workspace w) {
+        if (w.query == Integer.MAX_VALUE) {
+            Arrays.fill(w.reached, 0);
+            Arrays.fill(w.target, 0);
+            if (w.settled != null) Arrays.fill(w.settled, 0);
+            w.query = 0;
+        }
+        int query = ++w.query;
+        for (int t : targets)
+            w.target[t] = query;
+
+        int s = sources[i];
+        w.reached[s] = query;
+        w.distTo[s] = 0.0;
+        w.slotTo[s] = -1;
+        if (w.buckets != null) buckets(s, w, query);
+        else                   heap(s, w, query);
+
+        double[] row = new double[targets.length];
+        for (int j = 0; j < targets.length; j++)
+            row[j] = (w.reached[targets[j]] == query) ? w.distTo[targets[j]] : Double.POSITIVE_INFINITY;
+        dist[i] = row;
+
+        if (slotTo != null) {
+            int[] tree = new int[G.V()];
+            for (int v = 0; v < G.V(); v++)
+                tree[v] = (w.reached[v] == query) ? w.slotTo[v] : -1;
+            slotTo[i] = tree;
+        }
+    }
+
+    // the search from s on the binary heap
+    private void heap(int s, Workspace w, int query) {
+        int remaining = distinctTargets;
+        w.pq.clear();
+        w.pq.insert(s, 0.0);
+        while (!w.pq.isEmpty() && remaining > 0) {
+            int v = w.pq.delMin();
+            if (w.target[v] == query) remaining--;
+            for (int k = G.begin(v); k < G.end(v); k++) {
+                int x = G.target(k);
+                double d = w.distTo[v] + G.weight(k);
+                if (w.reached[x] != query || d < w.distTo[x]) {
+                    w.reached[x] = query;
+                    w.distTo[x] = d;
+                    w.slotTo[x] = k;
+                    w.pq.insertOrDecrease(x, d);
+                }
+            }
+        }
+    }
+
+    // the search from s on the bucket queue, where a vertex is pushed again
+    // when its distance drops and the entries out of date are skipped
+    private void buckets(int s, Workspace w, int query) {
+        int remaining = distinctTargets;
+        IntegerSP.MonotoneQueue pq = w.buckets;
+        pq.clear();
+        pq.push(s, 0);
+        for (int v = pq.pop(); v != -1 && remaining > 0; v = pq.pop()) {
+            if (w.settled[v] == query || pq.key() != (long) w.distTo[v]) continue;
+            w.settled[v] = query;
+            if (w.target[v] == query) remaining--;
+            for (int k = G.begin(v); k < G.end(v); k++) {
+                int x = G.target(k);
+                double d = w.distTo[v] + G.weight(k);
+                if (w.reached[x] != query || d < w.distTo[x]) {
+                    w.reached[x] = query;
+                    w.distTo[x] = d;
+                    w.slotTo[x] = k;
+                    pq.push(x, (long) d);
+                }
+            }
+        }
+    }
+
+   /**
+     * Return the table; entry [i][j] is the distance from sources[i] to targets[j].
+     * The array is the table itself, not a copy.
+     */
+    public double[][] distances() {
+        return dist;
+    }
+
+   /**
+     * Return the distance from sources[i] to targets[j].
+     */
+    public double dist(int i, int j) {
+        return dist[i][j];
+    }
+
+   /**
+     * Is there a path from sources[i] to targets[j]?
+     */
+    public boolean hasPath(int i, int j) {
+        return dist[i][j] < Double.POSITIVE_INFINITY;
+    }
+
+   /**
+     * Were the shortest path trees kept?
+     */
+    public boolean hasPredecessors() {
+        return slotTo != null;
+    }
+
+   /**
+     * Return the last edge on the shortest path from sources[i] to vertex v,
+     * null if v is the source or was not reached.
+     * @throws java.lang.IllegalStateException if predecessors were not requested
+     */
+    public DirectedEdge edgeTo(int i, int v) {
+        if (slotTo == null) throw new IllegalStateException("predecessors were not requested");
+        int k = slotTo[i][v];
+        return (k == -1) ? null : G.edge(k);
+    }
+
+   /**
+     * Return the shortest path from sources[i] to targets[j], null if there is none.
+     * @throws java.lang.IllegalStateException if predecessors were not requested
+     */
+    public Iterable<DirectedEdge> path(int i, int j) {
+        if (slotTo == null) throw new IllegalStateException("predecessors were not requested");
+        if (!hasPath(i, j)) return null;
+        Stack<DirectedEdge> path = new Stack<DirectedEdge>();
+        for (int k = slotTo[i][targets[j]]; k != -1; k = slotTo[i][G.source(k)])
+            path.push(G.edge(k));
+        return path;
+    }
+
+   /**
+     * Return the number of sources, the rows of the table.
+     */
+    public int sources() {
+        return sources.length;
+    }
+
+   /**
+     * Return the number of targets, the columns of the table.
+     */
+    public int targets() {
+        return targets.length;
+    }
+
+    // random sources and targets, timed against a serial loop of DijkstraSP
+    public static void main(String[] args) throws Exception {
+        EdgeWeightedDigraph network = GraphFile.read(args[0]);
+        int m = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int n = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        CSRDigraph G = new CSRDigraph(network);
+
+        Random random = new Random(0);
+        int[] sources = new int[m], targets = new int[n];
+        for (int i = 0; i < m; i++) sources[i] = random.nextInt(G.V());
+        for (int j = 0; j < n; j++) targets[j] = random.nextInt(G.V());
+
+        long t0 = System.nanoTime();
+        double[][] serial = new double[m][n];
+        for (int i = 0; i < m; i++) {
+            DijkstraSP sp = new DijkstraSP(G, sources[i]);
+            for (int j = 0; j < n; j++)
+                serial[i][j] = sp.distTo(targets[j]);
+        }
+        long t1 = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        DistanceMatrix matrix = new DistanceMatrix(G, sources, targets, false, pool);
+        long t2 = System.nanoTime();
+        pool.shutdown();
+
+        for (int i = 0; i < m; i++)
+            if (!Arrays.equals(serial[i], matrix.distances()[i]))
+                throw new IllegalStateException("row " + i + " differs from DijkstraSP");
+        System.out.printf("%d x %d table: DijkstraSP loop %.1f ms, DistanceMatrix on %d threads %.1f ms (%.1fx)%n",
+                          m, n, (t1 - t0) / 1e6, threads, (t2 - t1) / 1e6, (double) (t1 - t0) / (t2 - t1));
+    }
+}
@@ -0,0 +1,261 @@
+/*************************************************************************
+ *  Compilation:  javac DoubleIndexMinPQ.java
+ *  Execution:    java DoubleIndexMinPQ
+ *
+ *  Minimum-oriented indexed PQ of primitive double keys, using a d-ary heap.
+ *
+ *********************************************************************/
+
+import java.util.NoSuchElementException;
+
+/**
+ *  The <tt>DoubleIndexMinPQ</tt> class is an <tt>IndexMinPQ</tt> specialized to
+ *  primitive <tt>double</tt> keys. Keys live in a <tt>double[]</tt>, so
+ *  <em>insert</em> and <em>decrease-key</em> never box a <tt>Double</tt> and
+ *  comparisons are a single floating-point compare instead of a call to
+ *  <tt>compareTo</tt>.
+ *  <p>
+ *  The heap arity d is chosen at construction. With d = 2 the heap performs
+ *  exactly the same exchanges as <tt>IndexMinPQ</tt>, so clients that break
+ *  ties by heap order see identical results. A 4-ary heap is shallower,
+ *  which makes <em>insert</em> and <em>decrease-key</em> cheaper and keeps
+ *  the children of a node in one cache line, at the cost of more comparisons
+ *  per <em>delete-the-minimum</em>.
+ *  <p>
+ *  The <em>insert</em>, <em>delete-the-minimum</em>, <em>delete</em>,
+ *  <em>change-key</em>, <em>decrease-key</em>, and <em>increase-key</em>
+ *  operations take time proportional to log<sub>d</sub> N (times d for the
+ *  operations that sink). The <em>is-empty</em>, <em>size</em>, <em>min-index</em>,
+ *  <em>min-key</em>, and <em>key-of</em> operations take constant time.
+ *  Construction takes time proportional to the specified capacity.
+ */
+public class DoubleIndexMinPQ {
+    private final int NMAX;     // maximum number of elements on PQ
+    private final int d;        // arity of the heap
+    private int N;              // number of elements on PQ
+    private int[] pq;           // d-ary heap using 1-based indexing
+    private int[] qp;           // inverse of pq - qp[pq[i]] = pq[qp[i]] = i
+    private double[] keys;      // keys[i] = priority of i
+
+   /**
+     * Create an empty binary heap with indices between 0 and NMAX-1.
+     * @throws java.lang.IllegalArgumentException if NMAX < 0
+     */
+    public DoubleIndexMinPQ(int NMAX) {
+        this(NMAX, 2);
+    }
+
+   /**
+     * Create an empty d-ary heap with indices between 0 and NMAX-1.
+     * @throws java.lang.IllegalArgumentException if NMAX < 0 or d < 2
+     */
+    public DoubleIndexMinPQ(int NMAX, int d) {
+        if (NMAX < 0) throw new IllegalArgumentException();
+        if (d < 2) throw new IllegalArgumentException("heap arity must be at least 2");
+        this.NMAX = NMAX;
+        this.d = d;
+        keys = new double[NMAX];
+        pq   = new int[NMAX + 1];
+        qp   = new int[NMAX];
+        for (int i = 0; i < NMAX; i++) qp[i] = -1;
+    }
+
+   /**
+     * Is the priority queue empty?
+     */
+    public boolean isEmpty() { return N == 0; }
+
+   /**
+     * Is i an index on the priority queue?
+     * @throws java.lang.IndexOutOfBoundsException unless (0 &le; i < NMAX)
+     */
+    public boolean contains(int i) {
+        if (i < 0 || i >= NMAX) throw new IndexOutOfBoundsException();
+        return qp[i] != -1;
+    }
+
+   /**
+     * Return the number of keys on the priority queue.
+     */
+    public int size() {
+        return N;
+    }
+
+   /**
+     * Return the arity of the heap.
+     */
+    public int arity() {
+        return d;
+    }
+
+   /**
+     * Associate key with index i.
+     * @throws java.lang.IndexOutOfBoundsException unless 0 &le; i < NMAX
+     * @throws java.util.IllegalArgumentException if there already is an item associated with index i.
+     */
+    public void insert(int i, double key) {
+        if (contains(i)) throw new IllegalArgumentException("index is already in the priority queue");
+        N++;
+        qp[i] = N;
+        pq[N] = i;
+        keys[i] = key;
+        swim(N);
+    }
+
+   /**
+     * Return the index associated with a minimal key.
+     * @throws java.util.NoSuchElementException if priority queue is empty.
+     */
+    public int minIndex() {
+        if (N == 0) throw new NoSuchElementException("Priority queue underflow");
+        return pq[1];
+    }
+
+   /**
+     * Return a minimal key.
+     * @throws java.util.NoSuchElementException if priority queue is empty.
+     */
+    public double minKey() {
+        if (N == 0) throw new NoSuchElementException("Priority queue underflow");
+        return keys[pq[1]];
+    }
+
+   /**
+     * Delete a minimal key and return its associated index.
+     * @throws java.util.NoSuchElementException if priority queue is empty.
+     */
+    public int delMin() {
+        if (N == 0) throw new NoSuchElementException("Priority queue underflow");
+        int min = pq[1];
+        exch(1, N--);
+        sink(1);
+        qp[min] = -1;            // delete
+        pq[N+1] = -1;            // not needed
+        return min;
+    }
+
+   /**
+     * Return the key associated with index i.
+     * @throws java.lang.IndexOutOfBoundsException unless 0 &le; i < NMAX
+     * @throws java.util.NoSuchElementException no key is associated with index i
+     */
+    public double keyOf(int i) {
+        if (!contains(i)) throw new NoSuchElementException("index is not in the priority queue");
+        return keys[i];
+    }
+
+   /**
+     * Change the key associated with index i to the specified value.
+     * @throws java.lang.IndexOutOfBoundsException unless 0 &le; i < NMAX
+     * @throws java.util.NoSuchElementException no key is associated with index i
+     */
+    public void changeKey(int i, double key) {
+        if (!contains(i)) throw new NoSuchElementException("index is not in the priority queue");
+        keys[i] = key;
+        swim(qp[i]);
+        sink(qp[i]);
+    }
+
+   /**
+     * Decrease the key associated with index i to the specified value.
+     * @throws java.lang.IndexOutOfBoundsException unless 0 &le; i < NMAX
+     * @throws java.lang.IllegalArgumentException if key &ge; key associated with index i
+     * @throws java.util.NoSuchElementException no key is associated with index i
+     */
+    public void decreaseKey(int i, double key) {
+        if (!contains(i)) throw new NoSuchElementException("index is not in the priority queue");
+        if (keys[i] <= key) throw new IllegalArgumentException("Calling decreaseKey() with given argument would not strictly decrease the key");
+        keys[i] = key;
+        swim(qp[i]);
+    }
+
+   /**
+     * Insert index i with the given key, or decrease its key if i is already
+     * on the priority queue. This is the one operation Dijkstra's algorithm
+     * needs after a successful relaxation.
+     * @throws java.lang.IndexOutOfBoundsException unless 0 &le; i < NMAX
+     * @throws java.lang.IllegalArgumentException if i is on the queue with a key &le; key
+     */
+    public void insertOrDecrease(int i, double key) {
+        if (contains(i)) decreaseKey(i, key);
+        else             insert(i, key);
+    }
+
+   /**
+     * Increase the key associated with index i to the specified value.
+     * @throws java.lang.IndexOutOfBoundsException unless 0 &le; i < NMAX
+     * @throws java.lang.IllegalArgumentException if key &le; key associated with index i
+     * @throws java.util.NoSuchElementException no key is associated with index i
+     */
+    public void increaseKey(int i, double key) {
+        if (!contains(i)) throw new NoSuchElementException("index is not in the priority queue");
+        if (keys[i] >= key) throw new IllegalArgumentException("Calling increaseKey() with given argument would not strictly increase the key");
+        keys[i] = key;
+        sink(qp[i]);
+    }
+
+   /**
+     * Delete the key associated with index i.
+     * @throws java.lang.IndexOutOfBoundsException unless 0 &le; i < NMAX
+     * @throws java.util.NoSuchElementException no key is associated with index i
+     */
+    public void delete(int i) {
+        if (!contains(i)) throw new NoSuchElementException("index is not in the priority queue");
+        int index = qp[i];
+        exch(index, N--);
+        if (index <= N) {
+            swim(index);
+            sink(index);
+        }
+        qp[i] = -1;
+    }
+
+   /**
+     * Remove every index from the priority queue, in time proportional
+     * to the number of indices on it rather than to NMAX, so that one
+     * queue can be reused across searches that stop early.
+     */
+    public void clear() {
+        for (int k = 1; k <= N; k++) {
+            qp[pq[k]] = -1;
+            pq[k] = -1;
+        }
+        N = 0;
+    }
+
+
+   /**************************************************************
+    * General helper functions
+    **************************************************************/
+    private boolean greater(int i, int j) {
+        return keys[pq[i]] > keys[pq[j]];
+    }
+
+    private void exch(int i, int j) {
+        int swap = pq[i]; pq[i] = pq[j]; pq[j] = swap;
+        qp[pq[i]] = i; qp[pq[j]] = j;
+    }
+
+
+   /**************************************************************
+    * Heap helper functions; the children of k are d(k-1)+2 .. dk+1
+    **************************************************************/
+    private void swim(int k)  {
+        while (k > 1 && greater((k-2)/d + 1, k)) {
+            exch(k, (k-2)/d + 1);
+            k = (k-2)/d + 1;
+        }
+    }
+
+    private void sink(int k) {
+        while (d*(k-1) + 2 <= N) {
+            int j = d*(k-1) + 2;
+            int last = Math.min(j + d - 1, N);
+            for (int c = j + 1; c <= last; c++)
+                if (greater(j, c)) j = c;
+            if (!greater(k, j)) break;
+            exch(k, j);
+            k = j;
+        }
+    }
+}
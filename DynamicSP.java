@@ -0,0 +1,306 @@
+/*************************************************************************
+ *  Compilation:  javac DynamicSP.java
+ *  Execution:    java DynamicSP graph.txt [source] [changes]
+ *  Dependencies: EdgeWeightedDigraph.java GraphListener.java DoubleIndexMinPQ.java
+ *                DijkstraSP.java ShortestPathTree.java Stack.java DirectedEdge.java
+ *
+ *  A single-source shortest path tree that is repaired, rather than
+ *  recomputed, as edges are added, removed and reweighted.
+ *  Assumes all weights are nonnegative.
+ *
+ *************************************************************************/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ *  The <tt>DynamicSP</tt> class keeps the distTo[] and edgeTo[] arrays of
+ *  <tt>DijkstraSP</tt> up to date while the digraph changes, in the style
+ *  of Ramalingam and Reps. It listens to the digraph, so every
+ *  <tt>addEdge</tt>, <tt>changeEdge</tt> (including removals with weight
+ *  &le; 0), <tt>takeDownVertex</tt> and <tt>restoreVertex</tt> is repaired
+ *  as soon as it is made.
+ *  <p>
+ *  An edge u->v that is added or made lighter can only shorten paths: if
+ *  distTo[u] + weight < distTo[v], v is put on the priority queue and
+ *  Dijkstra's algorithm is resumed from there, settling only the vertices
+ *  whose distance drops. An edge that is removed or made heavier matters
+ *  only if it is edgeTo[v]; then the subtree of the shortest path tree
+ *  below v is cut off, each of its vertices takes the best edge entering
+ *  it from outside the subtree, and Dijkstra's algorithm settles the
+ *  subtree again. The rest of the tree is untouched.
+ *  <p>
+ *  Repairs need the edges entering each vertex, so the structure keeps its
+ *  own copy of the adjacency lists in both directions, updated from the
+ *  same notifications. After every repair the optimality conditions
+ *  checked by <tt>DijkstraSP</tt> hold again.
+ */
+public class DynamicSP implements GraphListener, ShortestPathTree {
+    private final EdgeWeightedDigraph G;
+    private final int s;
+    private final double[] distTo;           // distTo[v] = distance of shortest s->v path
+    private final DirectedEdge[] edgeTo;     // edgeTo[v] = last edge on shortest s->v path
+    private final ArrayList<DirectedEdge>[] out, in;    // edges leaving and entering each vertex
+    private final DoubleIndexMinPQ pq;
+    private final int[] cut;                 // v is in the subtree being repaired iff cut[v] == repair
+    private int repair;
+    private long touched;                    // vertices reset or settled by all repairs so far
+
+   /**
+     * Compute the shortest path tree of s in G and keep it current as G changes.
+     */
+    public DynamicSP(EdgeWeightedDigraph G, int s) {
+        this.G = G;
+        this.s = s;
+        int V = G.V();
+        distTo = new double[V];
+        edgeTo = new DirectedEdge[V];
+        out = lists(V);
+        in = lists(V);
+        for (int v = 0; v < V; v++)
+            distTo[v] = Double.POSITIVE_INFINITY;
+        for (int v = 0; v < V; v++) {
+            for (DirectedEdge e : G.adj(v)) {
+                out[v].add(e);
+                in[e.to()].add(e);
+            }
+        }
+        pq = new DoubleIndexMinPQ(V);
+        cut = new int[V];
+
+        distTo[s] = 0.0;
+        pq.insert(s, 0.0);
+        settle();
+        G.addListener(this);
+
+        assert check(G, s);
+    }
+
+   /**
+     * Stop following changes to the digraph.
+     */
+    public void close() {
+        G.removeListener(this);
+    }
+
+    // V empty lists of edges
+    private static ArrayList<DirectedEdge>[] lists(int V) {
+        @SuppressWarnings("unchecked")
+        ArrayList<DirectedEdge>[] lists = (ArrayList<DirectedEdge>[]) new ArrayList<?>[V];
+        for (int v = 0; v < V; v++)
+            lists[v] = new ArrayList<DirectedEdge>();
+        return lists;
+    }
+
+    // an added edge can only shorten paths
+    public void edgeAdded(DirectedEdge e) {
+        out[e.from()].add(e);
+        in[e.to()].add(e);
+        lower(e);
+        assert check(G, s);
+    }
+
+    // a removed edge matters only if it is on the tree
+    public void edgeRemoved(DirectedEdge e) {
+        out[e.from()].remove(e);
+        in[e.to()].remove(e);
+        if (edgeTo[e.to()] == e) raise(e.to());
+        assert check(G, s);
+    }
+
+    public void weightChanged(DirectedEdge e, double oldWeight) {
+        if (e.weight() < oldWeight)                               lower(e);
+        else if (e.weight() > oldWeight && edgeTo[e.to()] == e)   raise(e.to());
+        assert check(G, s);
+    }
+
+    // resume Dijkstra from the head of e if e now gives it a shorter path
+    private void lower(DirectedEdge e) {
+        int v = e.from(), w = e.to();
+        if (distTo[v] + e.weight() < distTo[w]) {
+            distTo[w] = distTo[v] + e.weight();
+            edgeTo[w] = e;
+            pq.insert(w, distTo[w]);
+            settle();
+        }
+    }
+
+    // the path to v got longer: cut off the subtree below v and settle it again
+    private void raise(int v) {
+        repair++;
+        int n = 0;
+        int[] subtree = new int[16];
+        subtree[n++] = v;
+        cut[v] = repair;
+        for (int i = 0; i < n; i++) {
+            int x = subtree[i];
+            for (DirectedEdge e : out[x]) {
+                int y = e.to();
+                if (edgeTo[y] == e && cut[y] != repair) {
+                    if (n == subtree.length) subtree = Arrays.copyOf(subtree, 2 * n);
+                    subtree[n++] = y;
+                    cut[y] = repair;
+                }
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            distTo[subtree[i]] = Double.POSITIVE_INFINITY;
+            edgeTo[subtree[i]] = null;
+        }
+
+        // best edge into each vertex of the subtree from the rest of the tree
+        for (int i = 0; i < n; i++) {
+            int y = subtree[i];
+            for (DirectedEdge e : in[y]) {
+                int x = e.from();
+                if (cut[x] != repair && distTo[x] + e.weight() < distTo[y]) {
+                    distTo[y] = distTo[x] + e.weight();
+                    edgeTo[y] = e;
+                }
+            }
+            if (edgeTo[y] != null) pq.insert(y, distTo[y]);
+        }
+        touched += n;
+        settle();
+    }
+
+    // Dijkstra's algorithm from the vertices on the priority queue
+    private void settle() {
+        while (!pq.isEmpty()) {
+            int v = pq.delMin();
+            touched++;
+            for (DirectedEdge e : out[v]) {
+                int w = e.to();
+                double dist = distTo[v] + e.weight();
+                // a tree edge always follows its tail, even when rounding hides the change
+                if (dist < distTo[w] || (edgeTo[w] == e && dist != distTo[w])) {
+                    distTo[w] = dist;
+                    edgeTo[w] = e;
+                    if (pq.contains(w)) pq.changeKey(w, dist);
+                    else                pq.insert(w, dist);
+                }
+            }
+        }
+    }
+
+    // the source of the tree
+    public int source() {
+        return s;
+    }
+
+    // vertices reset or settled by all repairs so far, a measure of their work
+    public long touched() {
+        return touched;
+    }
+
+    // length of shortest path from s to v
+    public double distTo(int v) {
+        return distTo[v];
+    }
+
+    // is there a path from s to v?
+    public boolean hasPathTo(int v) {
+        return distTo[v] < Double.POSITIVE_INFINITY;
+    }
+
+    // last edge on shortest path from s to v, null if v is s or unreachable
+    public DirectedEdge edgeTo(int v) {
+        return edgeTo[v];
+    }
+
+    // shortest path from s to v as an Iterable, null if no such path
+    public Iterable<DirectedEdge> pathTo(int v) {
+        if (!hasPathTo(v)) return null;
+        Stack<DirectedEdge> path = new Stack<DirectedEdge>();
+        for (DirectedEdge e = edgeTo[v]; e != null; e = edgeTo[e.from()]) {
+            path.push(e);
+        }
+        return path;
+    }
+
+
+    // check optimality conditions, as DijkstraSP does:
+    // (i) for all edges e:            distTo[e.to()] <= distTo[e.from()] + e.weight()
+    // (ii) for all edge e on the SPT: distTo[e.to()] == distTo[e.from()] + e.weight()
+    private boolean check(EdgeWeightedDigraph G, int s) {
+
+        // check that edge weights are nonnegative
+        for (DirectedEdge e : G.edges()) {
+            if (e.weight() < 0) {
+                System.err.println("negative edge weight detected");
+                return false;
+            }
+        }
+
+        // check that distTo[v] and edgeTo[v] are consistent
+        if (distTo[s] != 0.0 || edgeTo[s] != null) {
+            System.err.println("distTo[s] and edgeTo[s] inconsistent");
+            return false;
+        }
+        for (int v = 0; v < G.V(); v++) {
+            if (v == s) continue;
+            if (edgeTo[v] == null && distTo[v] != Double.POSITIVE_INFINITY) {
+                System.err.println("distTo[] and edgeTo[] inconsistent");
+                return false;
+            }
+        }
+
+        // check that all edges e = v->w satisfy distTo[w] <= distTo[v] + e.weight()
+        for (int v = 0; v < G.V(); v++) {
+            for (DirectedEdge e : G.adj(v)) {
+                int w = e.to();
+                if (distTo[v] + e.weight() < distTo[w]) {
+                    System.err.println("edge " + e + " not relaxed");
+                    return false;
+                }
+            }
+        }
+
+        // check that all edges e = v->w on SPT satisfy distTo[w] == distTo[v] + e.weight()
+        for (int w = 0; w < G.V(); w++) {
+            if (edgeTo[w] == null) continue;
+            DirectedEdge e = edgeTo[w];
+            int v = e.from();
+            if (w != e.to()) return false;
+            if (distTo[v] + e.weight() != distTo[w]) {
+                System.err.println("edge " + e + " on shortest path not tight");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // reweight random links and compare repairs with recomputing the tree
+    public static void main(String[] args) throws Exception {
+        EdgeWeightedDigraph G = GraphFile.read(args[0]);
+        int s = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        int changes = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        DynamicSP dynamic = new DynamicSP(G, s);
+        Random random = new Random(0);
+
+        long repairs = 0, recomputes = 0, touched = 0;
+        for (int i = 0; i < changes; i++) {
+            int u = random.nextInt(G.V());
+            DirectedEdge link = null;
+            for (DirectedEdge e : G.adj(u)) { link = e; break; }
+            if (link == null) continue;
+            double weight = random.nextInt(4) == 0 ? 0 : 1 + random.nextInt(100);   // 0 removes the link
+
+            long before = dynamic.touched();
+            long t0 = System.nanoTime();
+            G.changeEdge(link.from(), link.to(), weight);
+            long t1 = System.nanoTime();
+            DijkstraSP fresh = new DijkstraSP(G, s);
+            long t2 = System.nanoTime();
+            repairs += t1 - t0; recomputes += t2 - t1;
+            touched += dynamic.touched() - before;
+            for (int v = 0; v < G.V(); v++)
+                if (dynamic.distTo(v) != fresh.distTo(v))
+                    throw new IllegalStateException("distance to " + v + " differs after changing " + link);
+        }
+        System.out.printf("%d changes: repair %.3f ms, recompute %.3f ms, %.1f vertices touched per repair of %d%n",
+                          changes, repairs / 1e6 / changes, recomputes / 1e6 / changes,
+                          (double) touched / changes, G.V());
+    }
+}
@@ -1,7 +1,9 @@
 /*************************************************************************
  *  Compilation:  javac EdgeWeightedDigraph.java
  *  Execution:    java EdgeWeightedDigraph V E
- *  Dependencies: Bag.java DirectedEdge.java
+ *  Dependencies: Bag.java DirectedEdge.java WeightedDigraph.java LinearProbingLongST.java
+ *                FrozenDigraph.java ParallelPathEnumerator.java PathVisitor.java
+ *                GraphSnapshot.java
  *
  *  An edge-weighted digraph, implemented using adjacency lists.
  *
@@ -14,21 +16,73 @@
  *  iterate over all of edges leaving a vertex.
  *  Parallel edges and self-loops are permitted.
  *  <p>
+ *  The edges leaving each vertex are kept in a doubly-linked list, newest
+ *  first as a <tt>Bag</tt> keeps them, and the edges entering each vertex
+ *  are indexed by an array list of the same list nodes. Taking a vertex
+ *  down parks its edges where they are in the lists: they are skipped by
+ *  <tt>adj()</tt> and not counted by <tt>E()</tt> or <tt>outdegree()</tt>,
+ *  until the vertex is restored and every edge whose other end is up comes
+ *  back in its old place. Both take time proportional to the degree of
+ *  the vertex.
+ *  <p>
+ *  The newest edge from v to w is also found under the key (v, w) in a
+ *  linear probing hash table, and each edge points to the next older one
+ *  between the same two vertices, so <tt>changeEdge</tt> finds, reweights,
+ *  adds or removes the edges between two vertices in constant expected
+ *  time, whatever their degrees. Parked edges stay in the table, which
+ *  is not touched by taking vertices down and restoring them.
+ *  <p>
+ *  <tt>snapshot()</tt> returns the digraph as it is now as an immutable
+ *  <tt>GraphSnapshot</tt>, which other threads can read while this one
+ *  goes on changing the digraph. The changes and <tt>snapshot()</tt> are
+ *  synchronized on the digraph, so a snapshot is always taken between two
+ *  changes, never during one. Snapshots share the edge arrays of the
+ *  vertices whose outgoing edges did not change between them; every
+ *  change marks the tails of the edges it touches, and only their arrays
+ *  are built again.
+ *  <p>
+ *  A digraph loaded from a <tt>FrozenDigraph</tt>, as <tt>GraphFile</tt>
+ *  loads every network, keeps it and builds the lists of a vertex from its
+ *  slots the first time they are needed: when its edges are read or
+ *  changed, or, for the edges entering it, when it is taken down or
+ *  restored. Loading takes time proportional to V, and a vertex that is
+ *  never touched costs no objects. <tt>snapshot()</tt>, <tt>outdegree()</tt>
+ *  and a <tt>CSRDigraph</tt> frozen before any change read the slots
+ *  themselves. The lists, built or not, are for one thread at a time;
+ *  other threads read snapshots.
+ *  <p>
+ *  Each edge is numbered when it is added, and the number is never given to
+ *  another edge, so a <tt>GraphView</tt> can switch edges off with a bitset
+ *  of edge numbers and read the lists through <tt>adj(v, down, disabled)</tt>.
+ *  <p>
  *  For additional documentation, see <a href="http://algs4.cs.princeton.edu/44sp">Section 4.4</a> of
  *  <i>Algorithms, 4th Edition</i> by Robert Sedgewick and Kevin Wayne.
  */
 
+import java.io.PrintStream;
 import java.util.*;
 import java.util.Iterator;
 
 
-public class EdgeWeightedDigraph {
+public class EdgeWeightedDigraph implements WeightedDigraph {
     private final int V;
     private int E;
-    public Bag<DirectedEdge>[] adj;
+    private EdgeList[] adj;                  // adj[v] = edges leaving v, parked ones included; null until built
+    private ArrayList<Node>[] in;            // in[w] = the nodes of the edges entering w; null if none yet
+    private FrozenDigraph loaded;            // the slots this digraph was loaded from, null if none
+    private int[] firstInto, tails;          // the loaded edges entering w come from tails[firstInto[w] .. firstInto[w+1]-1]
+    private int ids;                         // number of edges ever linked, the next edge's id
+    private LinearProbingLongST<Node> between = new LinearProbingLongST<Node>();   // (v, w) -> newest edge v->w
 
-    private Bag<DirectedEdge>[] down;
     private boolean [] nodeStatus;
+    private int version;             // bumped by every change to the edges or node status
+    private ArrayList<GraphListener> listeners = new ArrayList<GraphListener>();
+    private ParallelPathEnumerator enumerator;   // for allPaths, made on first use
+
+    private GraphSnapshot latest;            // the last snapshot taken, null if none
+    private boolean[] changed;               // changed[v] iff the edges leaving v changed since latest
+    private int[] changes;                   // the vertices v with changed[v], in changes[0 .. nChanged-1]
+    private int nChanged;
     
     /**
      * Create an empty edge-weighted digraph with V vertices.
@@ -38,16 +92,38 @@ public class EdgeWeightedDigraph {
         if (V < 0) throw new RuntimeException("Number of vertices must be nonnegative");
         this.V = V;
         this.E = 0;
-        down = new Bag[V];
-        adj = (Bag<DirectedEdge>[]) new Bag[V];
-        for (int v = 0; v < V; v++)
-            adj[v] = new Bag<DirectedEdge>();
+        adj = new EdgeList[V];
+        in = (ArrayList<Node>[]) new ArrayList<?>[V];
+        for (int v = 0; v < V; v++) {
+            adj[v] = new EdgeList();
+            in[v] = new ArrayList<Node>();
+        }
 
         //make boolean array for vertices, if index is false, means node is down. 
-        //Also place empty Bags for each index of the down array
         nodeStatus = new boolean [V];
-        for(int i = 0; i<V; i++){
-            nodeStatus[i] = true; down[i] = new Bag<DirectedEdge>();}
+        for(int i = 0; i<V; i++)
+            nodeStatus[i] = true;
+
+        changed = new boolean[V];
+        changes = new int[V];
+    }
+
+   /**
+     * Create an edge-weighted digraph holding the edges of a frozen digraph,
+     * with adj(v) returning the edges in slot order. G is kept, and must not
+     * change; the list of a vertex is built from it when first needed.
+     */
+    @SuppressWarnings("unchecked")
+    public EdgeWeightedDigraph(FrozenDigraph G) {
+        V = G.V();
+        E = G.E();
+        loaded = G;
+        adj = new EdgeList[V];
+        in = (ArrayList<Node>[]) new ArrayList<?>[V];
+        nodeStatus = new boolean[V];
+        Arrays.fill(nodeStatus, true);
+        changed = new boolean[V];
+        changes = new int[V];
     }
 
    /**
@@ -79,141 +155,260 @@ public class EdgeWeightedDigraph {
         return E;
     }
 
+   /**
+     * Return a number that changes whenever an edge is added, removed or
+     * reweighted, or a vertex is taken down or restored, so that clients
+     * holding data derived from this digraph can tell when it is stale.
+     */
+    public int version() {
+        return version;
+    }
+
+   /**
+     * Tell the listener about every later change to the edges of this digraph.
+     */
+    public void addListener(GraphListener listener) {
+        listeners.add(listener);
+    }
+
+   /**
+     * Stop telling the listener about changes.
+     */
+    public void removeListener(GraphListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void fireAdded(DirectedEdge e) {
+        for (GraphListener l : listeners) l.edgeAdded(e);
+    }
+
+    private void fireRemoved(DirectedEdge e) {
+        for (GraphListener l : listeners) l.edgeRemoved(e);
+    }
+
+    private void fireWeightChanged(DirectedEdge e, double oldWeight) {
+        for (GraphListener l : listeners) l.weightChanged(e, oldWeight);
+    }
+
     public void upDownStatus(){
+        printStatus(nodeStatus, System.out);
+    }
+
+    // print which nodes are up and which are down to out, for this digraph and its snapshots
+    static void printStatus(boolean [] nodeStatus, PrintStream out){
 
-        System.out.println("The following nodes are connected in the network:");
+        out.println("The following nodes are connected in the network:");
 
-        for(int i = 0; i < V; i++){
+        for(int i = 0; i < nodeStatus.length; i++){
             if(nodeStatus[i])
-                System.out.print(i + " ");
+                out.print(i + " ");
         }
-        System.out.println();
-        System.out.println("The following nodes down in the network are:");
+        out.println();
+        out.println("The following nodes down in the network are:");
 
-        for(int i = 0; i < V; i++){
+        for(int i = 0; i < nodeStatus.length; i++){
             if(nodeStatus[i] == false)
-                System.out.print(i + " ");
+                out.print(i + " ");
         }
 
-        System.out.println();
+        out.println();
     }
 
 
    /**
      * Add the edge e to this digraph.
      */
-    public boolean addEdge(DirectedEdge e) {
+    public synchronized boolean addEdge(DirectedEdge e) {
         int v = e.from();
 
         if(nodeStatus[v] && nodeStatus[e.to()]){
-        adj[v].add(e);
+        link(e);
+        markChanged(v);
         E++;
+        version++;
+        fireAdded(e);
         return true;
         }
 
         return false;
     }
 
-    public void allPaths(int start, int end, double limit){
-
-        double totalWeight = 0;
-
-        ArrayList<Integer> pathTracker = new ArrayList<Integer>();
+    // put e at the front of the edges leaving e.from() and index it under e.to()
+    private Node link(DirectedEdge e) {
+        Node x = list(e.from()).add(e);
+        x.id = ids++;
+        long key = LinearProbingLongST.pack(e.from(), e.to());
+        x.same = between.get(key);
+        between.put(key, x);
+        ArrayList<Node> into = in[e.to()];
+        if (into == null) into = in[e.to()] = new ArrayList<Node>();
+        x.in = into.size();
+        into.add(x);
+        return x;
+    }
 
-        String starter = new String();
-        starter += start;
-        StringBuilder currPath = new StringBuilder(starter);
+    // the list of the edges leaving v, built from the loaded slots if it is not yet
+    private EdgeList list(int v) {
+        EdgeList list = adj[v];
+        return (list != null) ? list : build(v);
+    }
 
-        for(DirectedEdge e : adj(start)){
+    // link the loaded edges leaving v, which are all the edges v has, since any
+    // change to them would have built the list first; a snapshot may be reading
+    // the lists of other vertices, hence the lock
+    private synchronized EdgeList build(int v) {
+        if (adj[v] != null) return adj[v];
+        adj[v] = new EdgeList();
+        for (int i = loaded.end(v) - 1; i >= loaded.begin(v); i--)    // lists are LIFO
+            link(new DirectedEdge(v, loaded.target(i), loaded.weight(i)));
+        return adj[v];
+    }
 
-            currPath.append(e.to());
-            totalWeight = e.weight();
-            pathTracker.add(new Integer(e.to()));
-            allPathsRecursive(e.to() ,end, limit, totalWeight, currPath, pathTracker);
-            currPath.deleteCharAt(currPath.length() - 1);
-            pathTracker.remove(0);
+    // the nodes of every edge entering w, building the lists of the loaded edges' tails
+    private ArrayList<Node> entering(int w) {
+        if (loaded != null) {
+            if (firstInto == null) index();
+            for (int k = firstInto[w]; k < firstInto[w + 1]; k++)
+                list(tails[k]);
         }
+        if (in[w] == null) in[w] = new ArrayList<Node>();
+        return in[w];
+    }
 
+    // index the loaded edges by head, keeping only their tails
+    private void index() {
+        int[] first = new int[V + 1];
+        for (int i = 0; i < loaded.E(); i++)
+            first[loaded.target(i) + 1]++;
+        for (int v = 0; v < V; v++)
+            first[v + 1] += first[v];
+        int[] next = Arrays.copyOf(first, V);
+        tails = new int[loaded.E()];
+        for (int v = 0; v < V; v++)
+            for (int i = loaded.begin(v); i < loaded.end(v); i++)
+                tails[next[loaded.target(i)]++] = v;
+        firstInto = first;
     }
 
-    public void allPathsRecursive(int currVertex,int endVertex, double limit, double currWeight, StringBuilder currPath, ArrayList<Integer> pathTracker){
+    // the slots this digraph was loaded from, if it has not changed since; for CSRDigraph
+    FrozenDigraph unchanged() {
+        return (version == 0) ? loaded : null;
+    }
 
-        double totalWeight;
+    // take every edge v->w out of the lists and the table for good, adding them to removed
+    private void unlinkAll(int v, int w, Bag<DirectedEdge> removed) {
+        for (Node x = find(v, w); x != null; x = x.same) {
+            unlink(x);
+            removed.add(x.edge);
+            E--;
+        }
+        between.delete(LinearProbingLongST.pack(v, w));
+    }
 
-        if(currWeight > limit)
-            return;
+    // the newest edge v->w, parked or not, or null if there is none
+    private Node find(int v, int w) {
+        list(v);
+        return between.get(LinearProbingLongST.pack(v, w));
+    }
 
-        if(currVertex == endVertex){
-           System.out.println(currPath.toString() + " Total Weight: " + currWeight); 
-           return;
+    // take x out of both lists for good
+    private void unlink(Node x) {
+        adj[x.edge.from()].remove(x);
+        markChanged(x.edge.from());
+        ArrayList<Node> into = in[x.edge.to()];
+        Node last = into.remove(into.size() - 1);
+        if (last != x) {
+            into.set(x.in, last);
+            last.in = x.in;
         }
+    }
 
-        for(DirectedEdge e : adj(currVertex)){
+   /**
+     * Print the simple paths from start to end whose weight is at most limit,
+     * one per line as <tt>0-->4-->5 Total Weight: 7.0</tt>. The paths are
+     * held until the search ends, so it stops at the default cap and time
+     * limit of <tt>ParallelPathEnumerator</tt> and says so.
+     */
+    public void allPaths(int start, int end, double limit){
+        allPaths(start, end, limit, ParallelPathEnumerator.MAX_PATHS, ParallelPathEnumerator.TIMEOUT_MILLIS);
+    }
 
-            boolean notInPath = true;
+   /**
+     * Print the first maxPaths simple paths from start to end whose weight is at
+     * most limit, searching for at most timeoutMillis milliseconds (0 for no
+     * limit), and say so if the search stopped early.
+     */
+    public void allPaths(int start, int end, double limit, long maxPaths, long timeoutMillis){
 
-            for(int i = 0; i<pathTracker.size(); i++){
-                if(pathTracker.get(i).equals(e.to()))
-                    notInPath = false;
-            }
+        printPaths(enumerator().enumerate(start, end, limit, maxPaths, timeoutMillis), System.out);
+    }
 
-            if(notInPath){
-                totalWeight = currWeight + e.weight();
-                StringBuilder temper = new StringBuilder(currPath.append(e.to()));
-                temper.append("-->");
-                pathTracker.add(new Integer(e.to()));
-                allPathsRecursive(e.to(), endVertex, limit, totalWeight, temper, pathTracker);
-                pathTracker.remove(pathTracker.size()-1);
-                currPath.deleteCharAt(currPath.length()-1);
-            }
+    // made on first use; readers may ask for it at once
+    private synchronized ParallelPathEnumerator enumerator(){
 
-        }
+        if(enumerator == null)
+            enumerator = new ParallelPathEnumerator(this);
+        return enumerator;
+    }
 
+    // print paths to out as allPaths does, for this digraph and its views
+    static void printPaths(ParallelPathEnumerator.Paths paths, final PrintStream out) {
+        final StringBuilder line = new StringBuilder();
+        paths.replay(new PathVisitor() {
+            public void visit(int[] path, int length, double weight) {
+                line.setLength(0);
+                line.append(path[0]);
+                for(int i = 1; i < length; i++)
+                    line.append("-->").append(path[i]);
+                out.println(line.append(" Total Weight: ").append(weight));
+            }
+        });
+
+        if(paths.isExpired())
+            out.println("Stopped at the time limit after " + paths.size() + " paths.");
+        else if(paths.isCapped())
+            out.println("Stopped after the first " + paths.size() + " paths.");
     }
 
     public void changeEdge(int start, int end, double weight){
+        changeEdge(start, end, weight, System.out);
+    }
+
+    // as changeEdge, saying to out if it cannot be done
+    public synchronized void changeEdge(int start, int end, double weight, PrintStream out){
 
         DirectedEdge startEnd, endStart;
         DirectedEdge temp = null;
 
         //If one of the vertices is down, do not allow any edge manipulation
         if(nodeStatus[start] == false || nodeStatus[end] == false){
-            System.out.println("One or both of the vertices you wish to change is down.");
-            System.out.println("Operation cannot be done.");
-            System.out.println();
+            out.println("One or both of the vertices you wish to change is down.");
+            out.println("Operation cannot be done.");
+            out.println();
             return;
         }
 
+        version++;
+
         //If no weight or less than 0, remove edge
         if(weight <= 0){
 
-            Bag<DirectedEdge> newStart = new Bag<DirectedEdge>();
-            Bag<DirectedEdge> newEnd = new Bag<DirectedEdge>();
+            //both ends are up, so none of these edges is parked
+            Bag<DirectedEdge> removed = new Bag<DirectedEdge>();
 
-            for(DirectedEdge e : adj(start)){
-                if(e.to() == end)
-                    continue;
-                else
-                    newStart.add(e);
-            }
-            adj[start] = newStart;
+            unlinkAll(start, end, removed);
+            unlinkAll(end, start, removed);
 
-            for(DirectedEdge e : adj(end)){
-                if(e.to() == start)
-                    continue;
-                else
-                    newEnd.add(e);
-            }
-            adj[end] = newEnd;
+            for(DirectedEdge e : removed)
+                fireRemoved(e);
             return;
         }
 
         //Normal case, either change the edge specified if it exsists, or create new edge with specified weight
-        //if edge does not exsist. 
-        for(DirectedEdge e : adj(start)){
-            if(e.to() == end){
-                temp = e; break;}
-        }
+        //if edge does not exsist. The newest edge is the first adj(start) would return.
+        Node x = find(start, end);
+        if(x != null)
+            temp = x.edge;
 
         if(temp == null){
             startEnd = new DirectedEdge(start, end, weight); addEdge(startEnd);
@@ -224,89 +419,125 @@ public class EdgeWeightedDigraph {
         startEnd = temp;
         temp = null;
 
-        for(DirectedEdge e : adj(end)) {
-            if(e.to() == start){
-                temp = e; break;}
-        }
+        x = find(end, start);
+        if(x != null)
+            temp = x.edge;
         if(temp == null)
             return;
 
         endStart = temp;
+        markChanged(start);
+        markChanged(end);
 
+        double oldStartEnd = startEnd.weight(), oldEndStart = endStart.weight();
         if (startEnd.weight() == 0){
             startEnd.changeWeight(weight);
+            fireWeightChanged(startEnd, oldStartEnd);
             endStart.changeWeight(weight);
+            fireWeightChanged(endStart, oldEndStart);
             addEdge(startEnd);
             addEdge(endStart);
         }
         else{
             startEnd.changeWeight(weight);
+            fireWeightChanged(startEnd, oldStartEnd);
             endStart.changeWeight(weight);
+            fireWeightChanged(endStart, oldEndStart);
         }
     }
 
-    //takes removes each edge going to or from a specified vertex.
-    //Saves these edges so that they may be brought back up once the vertex restored. 
-    public void takeDownVertex(int s) {
-
-        Bag<DirectedEdge> [] newAdj = (Bag<DirectedEdge>[]) new Bag[V];  //created empty Bag array
+    //parks each edge going to or from a specified vertex, where it is in the lists,
+    //so that it may be brought back up once the vertex is restored.
+    public synchronized void takeDownVertex(int s) {
 
-        for(int i = 0; i<V; i++)
-            newAdj[i] = new Bag<DirectedEdge>();
-
-        //for each edge in the graph that doesn't correspond to s, add to new array which will represent the updated graph
-        //if edge does correspond to s, place that edge in down at respective indices, so that they be restored later.
-        for(DirectedEdge e : edges()){
-            if(e.to() == s || e.from() == s){
-                Bag<DirectedEdge> temp = down[e.from()];
-                temp.add(e);
-                down[e.from()] = temp;
-                E--;
-            }
-            else{
-                Bag<DirectedEdge> temp = newAdj[e.from()];
-                temp.add(e);
-                newAdj[e.from()] = temp;
-            }
-        }
         nodeStatus [s] = false;
-        adj = newAdj;
+        ArrayList<DirectedEdge> parked = new ArrayList<DirectedEdge>();
+
+        for(Node x = list(s).first; x != null; x = x.next)
+            park(x, parked);
+        for(Node x : entering(s))
+            park(x, parked);
+
+        version++;
+        for(DirectedEdge e : parked)
+            fireRemoved(e);
     }
 
-    public void restoreVertex(int s){
+    //unparks each edge going to or from a specified vertex whose other end is up.
+    public synchronized void restoreVertex(int s){
 
         nodeStatus[s] = true;
+        ArrayList<DirectedEdge> restored = new ArrayList<DirectedEdge>();
 
-        Bag<DirectedEdge> [] newDown = (Bag<DirectedEdge> []) new Bag[V];
+        for(Node x = list(s).first; x != null; x = x.next)
+            unpark(x, restored);
+        for(Node x : entering(s))
+            unpark(x, restored);
 
-        for(int i = 0; i<V; i++)
-            newDown[i] = new Bag<DirectedEdge>();
+        version++;
+        for(DirectedEdge e : restored)
+            fireAdded(e);
+    }
 
-        for(int i = 0; i<V;i++){
-            Bag<DirectedEdge> temp = down[i];
-            Iterator<DirectedEdge> it = temp.iterator();
+   /**
+     * Return the digraph as it is now, as an immutable snapshot. Takes time
+     * proportional to V plus the number of edges leaving the vertices whose
+     * edges changed since the last snapshot, or constant time if nothing did.
+     */
+    public synchronized GraphSnapshot snapshot() {
+        if (latest != null && latest.version() == version) return latest;
 
-            while(it.hasNext()){
+        DirectedEdge[][] rows = new DirectedEdge[V][];
+        if (latest == null) {
+            for (int v = 0; v < V; v++)
+                rows[v] = row(v);
+        }
+        else {
+            for (int v = 0; v < V; v++)
+                rows[v] = latest.row(v);
+            for (int i = 0; i < nChanged; i++)
+                rows[changes[i]] = row(changes[i]);
+        }
+        for (int i = 0; i < nChanged; i++)
+            changed[changes[i]] = false;
+        nChanged = 0;
+        latest = new GraphSnapshot(rows, loaded, nodeStatus.clone(), E, version);
+        return latest;
+    }
 
-                DirectedEdge e = it.next();
+    // copies of the edges leaving v, in adj(v) order, or null if they are the
+    // loaded ones, which the snapshot reads itself
+    private DirectedEdge[] row(int v) {
+        if (adj[v] == null) return null;
+        DirectedEdge[] row = new DirectedEdge[adj[v].N];
+        int i = 0;
+        for (DirectedEdge e : adj[v])
+            row[i++] = new DirectedEdge(e.from(), e.to(), e.weight());
+        return row;
+    }
 
-                if(e.to() == s || e.from() == s){
+    private void markChanged(int v) {
+        if (latest == null || changed[v]) return;    // the first snapshot builds every row
+        changed[v] = true;
+        changes[nChanged++] = v;
+    }
 
-                   if(addEdge(e) == false){
-                        Bag<DirectedEdge> temper = newDown[i];
-                        temper.add(e);
-                        newDown[i] = temper;
-                   }
-                }
-                else{
-                    Bag<DirectedEdge> temper = newDown[i];
-                    temper.add(e);
-                    newDown[i] = temper;
-                }
-            }
-        }
+    private void park(Node x, ArrayList<DirectedEdge> parked) {
+        if (x.parked) return;                // a self-loop, or the other end is down too
+        x.parked = true;
+        adj[x.edge.from()].N--;
+        markChanged(x.edge.from());
+        E--;
+        parked.add(x.edge);
+    }
 
-        down = newDown;
+    private void unpark(Node x, ArrayList<DirectedEdge> restored) {
+        if (!x.parked || !nodeStatus[x.edge.from()] || !nodeStatus[x.edge.to()]) return;
+        x.parked = false;
+        adj[x.edge.from()].N++;
+        markChanged(x.edge.from());
+        E++;
+        restored.add(x.edge);
     }
 
 
@@ -316,7 +547,50 @@ public class EdgeWeightedDigraph {
      * <tt>for (DirectedEdge e : graph.adj(v))</tt>.
      */
     public Iterable<DirectedEdge> adj(int v) {
-        return adj[v];
+        return list(v);
+    }
+
+    // The edges leaving v, less those whose head is set in the bitset down and those
+    // whose id is set in the bitset disabled, either of which may be null; for GraphView.
+    Iterable<DirectedEdge> adj(final int v, final long[] down, final long[] disabled) {
+        return new Iterable<DirectedEdge>() {
+            public Iterator<DirectedEdge> iterator() { return list(v).iterator(down, disabled); }
+        };
+    }
+
+    // The edges entering v, less parked ones, in no set order; with adj(v) these are
+    // the edges at v taken as undirected, for LivePrimMST.
+    Iterable<DirectedEdge> into(final int v) {
+        return new Iterable<DirectedEdge>() {
+            public Iterator<DirectedEdge> iterator() {
+                return new Iterator<DirectedEdge>() {
+                    private final ArrayList<Node> nodes = entering(v);
+                    private int i = skip(0);
+
+                    private int skip(int i) {
+                        while (i < nodes.size() && nodes.get(i).parked) i++;
+                        return i;
+                    }
+
+                    public boolean hasNext() { return i < nodes.size();                  }
+                    public void remove()     { throw new UnsupportedOperationException(); }
+
+                    public DirectedEdge next() {
+                        if (!hasNext()) throw new NoSuchElementException();
+                        DirectedEdge e = nodes.get(i).edge;
+                        i = skip(i + 1);
+                        return e;
+                    }
+                };
+            }
+        };
+    }
+
+    // the id of e, which leaves e.from(), or -1 if e is not in this digraph
+    int id(DirectedEdge e) {
+        for (Node x = find(e.from(), e.to()); x != null; x = x.same)
+            if (x.edge == e) return x.id;
+        return -1;
     }
 
    /**
@@ -338,7 +612,8 @@ public class EdgeWeightedDigraph {
      * Return number of edges leaving v.
      */
     public int outdegree(int v) {
-        return adj[v].size();
+        if (adj[v] == null) return loaded.end(v) - loaded.begin(v);
+        return adj[v].N;
     }
 
    /**
@@ -349,11 +624,78 @@ public class EdgeWeightedDigraph {
         StringBuilder s = new StringBuilder();
         for (int v = 0; v < V; v++) {
             s.append(v + ": ");
-            for (DirectedEdge e : adj[v]) {
+            for (DirectedEdge e : adj(v)) {
                 s.append(e + "  ");
             }
             s.append(NEWLINE);
         }
         return s.toString();
     }
-}
\ No newline at end of file
+
+
+    // an edge in the list of edges leaving its tail; parked while either end is down
+    private static class Node {
+        private final DirectedEdge edge;
+        private Node prev, next;
+        private int in;                      // index in the list of edges entering its head
+        private int id;                      // number of the edge, never reused
+        private Node same;                   // the next older edge with the same tail and head
+        private boolean parked;
+
+        Node(DirectedEdge edge) {
+            this.edge = edge;
+        }
+    }
+
+    // the edges leaving a vertex, newest first, with removal in constant time
+    private static class EdgeList implements Iterable<DirectedEdge> {
+        private Node first;
+        private int N;                       // number of edges that are not parked
+
+        Node add(DirectedEdge e) {
+            Node x = new Node(e);
+            x.next = first;
+            if (first != null) first.prev = x;
+            first = x;
+            N++;
+            return x;
+        }
+
+        void remove(Node x) {
+            if (x.prev != null) x.prev.next = x.next;
+            else                first = x.next;
+            if (x.next != null) x.next.prev = x.prev;
+            if (!x.parked) N--;
+        }
+
+        public Iterator<DirectedEdge> iterator() {
+            return iterator(null, null);
+        }
+
+        Iterator<DirectedEdge> iterator(final long[] down, final long[] disabled) {
+            return new Iterator<DirectedEdge>() {
+                private Node current = skip(first, down, disabled);
+
+                public boolean hasNext() { return current != null;                    }
+                public void remove()     { throw new UnsupportedOperationException(); }
+
+                public DirectedEdge next() {
+                    if (current == null) throw new NoSuchElementException();
+                    DirectedEdge e = current.edge;
+                    current = skip(current.next, down, disabled);
+                    return e;
+                }
+            };
+        }
+
+        private static Node skip(Node x, long[] down, long[] disabled) {
+            while (x != null && (x.parked || isSet(down, x.edge.to()) || isSet(disabled, x.id)))
+                x = x.next;
+            return x;
+        }
+
+        private static boolean isSet(long[] bits, int i) {
+            return bits != null && (i >>> 6) < bits.length && (bits[i >>> 6] & (1L << i)) != 0;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*************************************************************************
+ *  Compilation:  javac FrozenDigraph.java
+ *
+ *  The slots of an immutable edge-weighted digraph in compressed sparse
+ *  row form, wherever they are stored.
+ *
+ *************************************************************************/
+
+/**
+ *  The <tt>FrozenDigraph</tt> interface is what <tt>EdgeWeightedDigraph</tt>
+ *  and <tt>GraphSnapshot</tt> read from the network they were loaded from.
+ *  The edges leaving vertex v are in the slots <tt>begin(v)</tt> through
+ *  <tt>end(v)-1</tt>. It is implemented by <tt>CSRDigraph</tt>, which holds
+ *  the slots in arrays on the heap and is what the algorithms run on, and by
+ *  <tt>MappedDigraph</tt>, which reads them from a file mapped by
+ *  <tt>GraphFile</tt>.
+ */
+public interface FrozenDigraph {
+
+   /**
+     * Return the number of vertices.
+     */
+    public int V();
+
+   /**
+     * Return the number of edges.
+     */
+    public int E();
+
+   /**
+     * Return the first slot of the edges leaving v.
+     */
+    public int begin(int v);
+
+   /**
+     * Return one past the last slot of the edges leaving v.
+     */
+    public int end(int v);
+
+   /**
+     * Return the vertex where the edge in slot i ends.
+     */
+    public int target(int i);
+
+   /**
+     * Return the weight of the edge in slot i.
+     */
+    public double weight(int i);
+}
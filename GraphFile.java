@@ -0,0 +1,221 @@
+/*************************************************************************
+ *  Compilation:  javac GraphFile.java
+ *  Execution:    java GraphFile graph.txt graph.bin
+ *  Dependencies: CSRDigraph.java MappedDigraph.java EdgeWeightedDigraph.java
+ *                ParallelTextLoader.java
+ *
+ *  Reads networks in the text edge-list format and in a versioned binary
+ *  CSR format, and converts the former into the latter.
+ *
+ *  % java GraphFile graph2.txt graph2.bin
+ *  graph2.txt: 15 vertices, 60 edges, 0.00 MB in 37.18 ms (0.01 MB/s, 1614 edges/s) on 1 chunks
+ *  Wrote 15 vertices and 60 edges to graph2.bin
+ *
+ *************************************************************************/
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ *  The <tt>GraphFile</tt> class loads and stores networks.
+ *  <p>
+ *  The text format is the one read by <tt>Assig5</tt>: the number of vertices,
+ *  the number of links, then one <tt>u v w</tt> line per undirected link,
+ *  which becomes the two directed edges u->v and v->u.
+ *  <p>
+ *  The binary format is little-endian and laid out as
+ *  <pre>
+ *      int    magic          'G' 'R' 'P' 'H'
+ *      int    version        1
+ *      int    V
+ *      int    E              number of directed edges
+ *      int    offsets[V+1]
+ *      int    targets[E]
+ *      (zero padding to a multiple of 8 bytes)
+ *      double weights[E]
+ *  </pre>
+ *  which is exactly the storage of a <tt>CSRDigraph</tt>, so <tt>map()</tt>
+ *  wraps the file as a <tt>MappedDigraph</tt> without parsing or copying it.
+ *  It reads the offsets and targets once to check them; the weights are
+ *  only read in as they are touched. <tt>read()</tt> loads the digraph from
+ *  the mapping, and the digraph builds the lists of a vertex only when they
+ *  are first used.
+ */
+public class GraphFile {
+    public static final int MAGIC   = 0x48505247;     // "GRPH" read as a little-endian int
+    public static final int VERSION = 1;
+    private static final int HEADER = 16;             // magic, version, V, E
+
+    // static methods only
+    private GraphFile() { }
+
+   /**
+     * Read a network in either format, recognising binary files by their magic number.
+     */
+    public static EdgeWeightedDigraph read(String fileName) throws IOException {
+        return read(fileName, null);
+    }
+
+   /**
+     * Read a network in either format, and print to report, unless it is null,
+     * a line saying how long the load took and at what rate in MB and edges per second.
+     */
+    public static EdgeWeightedDigraph read(String fileName, PrintStream report) throws IOException {
+        if (isBinary(fileName)) {
+            long start = System.nanoTime();
+            MappedDigraph G = map(fileName);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            if (report != null)
+                report.printf("%s: %d vertices, %d edges, %.2f MB mapped in %.2f ms (%.2f MB/s, %.0f edges/s)%n",
+                              fileName, G.V(), G.E(), size(G.V(), G.E()) / 1e6, seconds * 1e3,
+                              size(G.V(), G.E()) / 1e6 / seconds, G.E() / seconds);
+            return new EdgeWeightedDigraph(G);
+        }
+        ParallelTextLoader loader = new ParallelTextLoader();
+        EdgeWeightedDigraph G = new EdgeWeightedDigraph(loader.load(fileName));
+        if (report != null) report.println(loader);
+        return G;
+    }
+
+   /**
+     * Is the file in the binary format?
+     */
+    public static boolean isBinary(String fileName) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(fileName, "r");
+        try {
+            if (file.length() < HEADER) return false;
+            return Integer.reverseBytes(file.readInt()) == MAGIC;
+        }
+        finally {
+            file.close();
+        }
+    }
+
+   /**
+     * Read a network in the text format, adding both directions of every link.
+     * The file is parsed in parallel by <tt>ParallelTextLoader</tt>.
+     * @throws java.io.IOException if the file cannot be read or a line is malformed
+     */
+    public static EdgeWeightedDigraph readText(String fileName) throws IOException {
+        return new EdgeWeightedDigraph(new ParallelTextLoader().load(fileName));
+    }
+
+   /**
+     * Map a binary network file into memory as a read-only CSR digraph.
+     * The mapping stays valid after this method returns; it is released
+     * when the digraph is garbage collected.
+     * @throws java.io.IOException if the file is truncated, not in the binary
+     *         format, or has offsets that are not in order or targets that are
+     *         not vertices
+     */
+    public static MappedDigraph map(String fileName) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(fileName, "r");
+        MappedByteBuffer buf;
+        try {
+            if (file.length() > Integer.MAX_VALUE)
+                throw new IOException(fileName + " is larger than a single 2GB mapping");
+            buf = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+        }
+        finally {
+            file.close();
+        }
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (buf.limit() < HEADER || buf.getInt(0) != MAGIC)
+            throw new IOException(fileName + " is not a binary network file");
+        if (buf.getInt(4) != VERSION)
+            throw new IOException(fileName + " has unsupported version " + buf.getInt(4));
+        int V = buf.getInt(8);
+        int E = buf.getInt(12);
+        if (V < 0 || E < 0 || buf.limit() != size(V, E))
+            throw new IOException(fileName + " is truncated or has a corrupt header");
+
+        int targetsAt = HEADER + 4 * (V + 1);
+        int weightsAt = pad(targetsAt + 4 * E);
+        IntBuffer offsets = buf.slice(HEADER, 4 * (V + 1)).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        IntBuffer targets = buf.slice(targetsAt, 4 * E).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        DoubleBuffer weights = buf.slice(weightsAt, 8 * E).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+
+        // the offsets run from 0 up to E and every target is a vertex
+        if (offsets.get(0) != 0 || offsets.get(V) != E)
+            throw new IOException(fileName + " has offsets that do not run from 0 to " + E);
+        for (int v = 0; v < V; v++)
+            if (offsets.get(v) > offsets.get(v + 1))
+                throw new IOException(fileName + " has decreasing offsets at vertex " + v);
+        for (int i = 0; i < E; i++) {
+            int w = targets.get(i);
+            if (w < 0 || w >= V)
+                throw new IOException(fileName + " has target " + w + " in slot " + i + ", not between 0 and " + (V - 1));
+        }
+        return new MappedDigraph(V, offsets, targets, weights);
+    }
+
+   /**
+     * Write G in the binary format.
+     */
+    public static void write(CSRDigraph G, String fileName) throws IOException {
+        int V = G.V(), E = G.E();
+        long size = size(V, E);
+        if (size > Integer.MAX_VALUE)
+            throw new IOException("network is too large for a single 2GB mapping");
+
+        ByteBuffer buf = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        buf.putInt(MAGIC).putInt(VERSION).putInt(V).putInt(E);
+        for (int v = 0; v < V; v++)
+            buf.putInt(G.begin(v));
+        buf.putInt(E);
+        for (int i = 0; i < E; i++)
+            buf.putInt(G.target(i));
+        buf.position(pad(buf.position()));
+        for (int i = 0; i < E; i++)
+            buf.putDouble(G.weight(i));
+        buf.flip();
+
+        RandomAccessFile file = new RandomAccessFile(fileName, "rw");
+        try {
+            file.setLength(0);
+            FileChannel channel = file.getChannel();
+            while (buf.hasRemaining())
+                channel.write(buf);
+        }
+        finally {
+            file.close();
+        }
+    }
+
+   /**
+     * Convert a text network file into the binary format.
+     */
+    public static void convert(String textFile, String binaryFile) throws IOException {
+        write(new ParallelTextLoader().load(textFile), binaryFile);
+    }
+
+    // total file size of a network with V vertices and E edges
+    private static long size(int V, int E) {
+        return pad(HEADER + 4L * (V + 1) + 4L * E) + 8L * E;
+    }
+
+    // round up to the next multiple of 8, so the weights are aligned
+    private static long pad(long n) {
+        return (n + 7) & ~7L;
+    }
+
+    private static int pad(int n) {
+        return (n + 7) & ~7;
+    }
+
+    public static void main(String[] args) throws IOException {
+        ParallelTextLoader loader = new ParallelTextLoader();
+        write(loader.load(args[0]), args[1]);
+        System.out.println(loader);
+        MappedDigraph G = map(args[1]);
+        System.out.println("Wrote " + G.V() + " vertices and " + G.E() + " edges to " + args[1]);
+    }
+}
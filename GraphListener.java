@@ -0,0 +1,35 @@
+/*************************************************************************
+ *  Compilation:  javac GraphListener.java
+ *  Dependencies: DirectedEdge.java
+ *
+ *  Notification of changes to the edges of an edge-weighted digraph.
+ *
+ *************************************************************************/
+
+/**
+ *  The <tt>GraphListener</tt> interface is implemented by clients that keep
+ *  data derived from an <tt>EdgeWeightedDigraph</tt> and want to know
+ *  exactly which edges changed, rather than just that <tt>version()</tt>
+ *  moved on. Taking a vertex down removes each of its edges and restoring
+ *  it adds them back, so those arrive as single-edge notifications too.
+ *  <p>
+ *  Listeners are called on the thread that changes the graph, after the
+ *  change has been made.
+ */
+public interface GraphListener {
+
+   /**
+     * The edge e was added to the digraph, or restored with its vertex.
+     */
+    public void edgeAdded(DirectedEdge e);
+
+   /**
+     * The edge e was removed from the digraph, or parked with a downed vertex.
+     */
+    public void edgeRemoved(DirectedEdge e);
+
+   /**
+     * The weight of the edge e, still in the digraph, changed from oldWeight.
+     */
+    public void weightChanged(DirectedEdge e, double oldWeight);
+}
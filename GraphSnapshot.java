@@ -0,0 +1,290 @@
+/*************************************************************************
+ *  Compilation:  javac GraphSnapshot.java
+ *  Execution:    java GraphSnapshot graph.txt
+ *  Dependencies: EdgeWeightedDigraph.java WeightedDigraph.java DirectedEdge.java
+ *                FrozenDigraph.java Bag.java CSRDigraph.java ParallelPathEnumerator.java
+ *                LazyPrimMSTTrace.java DijkstraSP.java GraphFile.java
+ *
+ *  An immutable version of an edge-weighted digraph, sharing the edge
+ *  lists of unchanged vertices with the versions before and after it.
+ *
+ *************************************************************************/
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ *  The <tt>GraphSnapshot</tt> class is the state of an
+ *  <tt>EdgeWeightedDigraph</tt> at one version, as returned by its
+ *  <tt>snapshot()</tt> method. It never changes, so a thread can run
+ *  <tt>DijkstraSP</tt>, <tt>allPaths()</tt> or <tt>mst()</tt> on it while
+ *  another thread goes on changing the digraph, and both see a consistent
+ *  graph.
+ *  <p>
+ *  A snapshot holds one array of edges per vertex, with copies of the
+ *  digraph's edges so that later reweighting does not reach it; the
+ *  edges must not be changed. When the digraph takes its next snapshot,
+ *  only the arrays of the vertices whose outgoing edges changed since are
+ *  built again, and the new snapshot shares every other array with this
+ *  one, so a snapshot costs time proportional to V plus the edges of the
+ *  changed vertices. The digraph keeps only its latest snapshot; older ones
+ *  are reclaimed by the garbage collector as soon as no reader holds them,
+ *  and arrays shared with a newer snapshot live on in it.
+ *  <p>
+ *  A vertex whose lists the digraph has not built yet has no array: its
+ *  edges are still the ones the digraph was loaded from, and the snapshot
+ *  reads them from the same <tt>FrozenDigraph</tt>, making a new edge for
+ *  each one it returns.
+ *  <p>
+ *  Parked edges, those of vertices taken down, are not in a snapshot, which
+ *  also keeps which vertices were up. <tt>into()</tt> returns the edges
+ *  entering a vertex, from an index by head that is built the first time
+ *  it is asked for and kept with the snapshot.
+ */
+public class GraphSnapshot implements WeightedDigraph {
+    private final DirectedEdge[][] adj;     // adj[v] = edges leaving v, in the digraph's adj(v) order, or null if loaded ones
+    private final FrozenDigraph loaded;     // what the digraph was loaded from, null if nothing
+    private final boolean[] up;             // up[v] iff v was up
+    private int[] firstInto, tails, at;     // the edges entering w are edge at[k] of tails[k], firstInto[w] <= k < firstInto[w+1]
+    private final int E;
+    private final int version;              // the digraph's version() when taken
+    private ParallelPathEnumerator enumerator;   // for allPaths, made on first use
+
+    // built by EdgeWeightedDigraph.snapshot(); adj is not copied
+    GraphSnapshot(DirectedEdge[][] adj, FrozenDigraph loaded, boolean[] up, int E, int version) {
+        this.adj = adj;
+        this.loaded = loaded;
+        this.up = up;
+        this.E = E;
+        this.version = version;
+    }
+
+    // the edges of v, for the next snapshot to share
+    DirectedEdge[] row(int v) {
+        return adj[v];
+    }
+
+    public int V() {
+        return adj.length;
+    }
+
+    public int E() {
+        return E;
+    }
+
+    public int version() {
+        return version;
+    }
+
+   /**
+     * Was v up when the snapshot was taken?
+     */
+    public boolean isUp(int v) {
+        return up[v];
+    }
+
+   /**
+     * Print which vertices were up and which were down, as
+     * <tt>EdgeWeightedDigraph.upDownStatus()</tt> does.
+     */
+    public void upDownStatus() {
+        upDownStatus(System.out);
+    }
+
+   /**
+     * Print the same to out.
+     */
+    public void upDownStatus(PrintStream out) {
+        EdgeWeightedDigraph.printStatus(up, out);
+    }
+
+    // the slots the digraph was loaded from, if it had not changed since; for CSRDigraph
+    FrozenDigraph unchanged() {
+        return (version == 0) ? loaded : null;
+    }
+
+    public int outdegree(int v) {
+        if (adj[v] == null) return loaded.end(v) - loaded.begin(v);
+        return adj[v].length;
+    }
+
+    public Iterable<DirectedEdge> adj(final int v) {
+        final DirectedEdge[] row = adj[v];
+        return new Iterable<DirectedEdge>() {
+            public Iterator<DirectedEdge> iterator() {
+                return new Iterator<DirectedEdge>() {
+                    private int i   = (row != null) ? 0 : loaded.begin(v);
+                    private int end = (row != null) ? row.length : loaded.end(v);
+
+                    public boolean hasNext() { return i < end;                            }
+                    public void remove()     { throw new UnsupportedOperationException(); }
+
+                    public DirectedEdge next() {
+                        if (!hasNext()) throw new NoSuchElementException();
+                        if (row != null) return row[i++];
+                        DirectedEdge e = new DirectedEdge(v, loaded.target(i), loaded.weight(i));
+                        i++;
+                        return e;
+                    }
+                };
+            }
+        };
+    }
+
+   /**
+     * Return the edges entering v, in order of their tails; with <tt>adj(v)</tt>
+     * these are the edges at v taken as undirected, for <tt>LivePrimMST</tt>.
+     */
+    public Iterable<DirectedEdge> into(final int v) {
+        index();
+        return new Iterable<DirectedEdge>() {
+            public Iterator<DirectedEdge> iterator() {
+                return new Iterator<DirectedEdge>() {
+                    private int k = firstInto[v];
+
+                    public boolean hasNext() { return k < firstInto[v + 1];               }
+                    public void remove()     { throw new UnsupportedOperationException(); }
+
+                    public DirectedEdge next() {
+                        if (!hasNext()) throw new NoSuchElementException();
+                        int u = tails[k], i = at[k];
+                        k++;
+                        if (adj[u] != null) return adj[u][i];
+                        int slot = loaded.begin(u) + i;
+                        return new DirectedEdge(u, v, loaded.weight(slot));
+                    }
+                };
+            }
+        };
+    }
+
+    // index the edges by head, keeping the tail and the edge's place among the tail's
+    private synchronized void index() {
+        if (firstInto != null) return;
+        int V = adj.length;
+        int[] first = new int[V + 1];
+        for (int u = 0; u < V; u++)
+            for (int i = 0; i < outdegree(u); i++)
+                first[head(u, i) + 1]++;
+        for (int v = 0; v < V; v++)
+            first[v + 1] += first[v];
+        int[] next = Arrays.copyOf(first, V);
+        tails = new int[first[V]];
+        at = new int[first[V]];
+        for (int u = 0; u < V; u++) {
+            for (int i = 0; i < outdegree(u); i++) {
+                int k = next[head(u, i)]++;
+                tails[k] = u;
+                at[k] = i;
+            }
+        }
+        firstInto = first;
+    }
+
+    // the head of edge i of u, 0 <= i < outdegree(u), read from the slots if
+    // the row is a loaded one, without making a DirectedEdge
+    int head(int u, int i) {
+        return (adj[u] != null) ? adj[u][i].to() : loaded.target(loaded.begin(u) + i);
+    }
+
+    // the weight of edge i of u, read as head() reads it
+    double weight(int u, int i) {
+        return (adj[u] != null) ? adj[u][i].weight() : loaded.weight(loaded.begin(u) + i);
+    }
+
+    public Iterable<DirectedEdge> edges() {
+        Bag<DirectedEdge> list = new Bag<DirectedEdge>();
+        for (int v = 0; v < adj.length; v++)
+            for (DirectedEdge e : adj(v))
+                list.add(e);
+        return list;
+    }
+
+   /**
+     * Print the simple paths from start to end whose weight is at most
+     * limit, as <tt>EdgeWeightedDigraph.allPaths()</tt> does, up to its cap and time limit.
+     */
+    public void allPaths(int start, int end, double limit) {
+        allPaths(start, end, limit, ParallelPathEnumerator.MAX_PATHS, ParallelPathEnumerator.TIMEOUT_MILLIS);
+    }
+
+   /**
+     * Print the first maxPaths such paths, searching for at most timeoutMillis
+     * milliseconds (0 for no limit).
+     */
+    public void allPaths(int start, int end, double limit, long maxPaths, long timeoutMillis) {
+        allPaths(start, end, limit, maxPaths, timeoutMillis, System.out);
+    }
+
+   /**
+     * Print the same to out.
+     */
+    public void allPaths(int start, int end, double limit, long maxPaths, long timeoutMillis, PrintStream out) {
+        EdgeWeightedDigraph.printPaths(enumerator().enumerate(start, end, limit, maxPaths, timeoutMillis), out);
+    }
+
+    private synchronized ParallelPathEnumerator enumerator() {
+        if (enumerator == null) enumerator = new ParallelPathEnumerator(this);
+        return enumerator;
+    }
+
+   /**
+     * Return the minimum spanning forest of this snapshot, taking each edge as undirected.
+     */
+    public LazyPrimMSTTrace mst() {
+        return new LazyPrimMSTTrace(new CSRDigraph(this));
+    }
+
+   /**
+     * Return a string representation of this snapshot, as the digraph's.
+     */
+    public String toString() {
+        String NEWLINE = System.getProperty("line.separator");
+        StringBuilder s = new StringBuilder();
+        for (int v = 0; v < adj.length; v++) {
+            s.append(v + ": ");
+            for (DirectedEdge e : adj(v))
+                s.append(e + "  ");
+            s.append(NEWLINE);
+        }
+        return s.toString();
+    }
+
+    // run Dijkstra on snapshots in one thread while another thread changes the digraph
+    public static void main(String[] args) throws Exception {
+        final EdgeWeightedDigraph G = GraphFile.read(args[0]);
+        final int rounds = 20;
+        Thread writer = new Thread(new Runnable() {
+            public void run() {
+                Random random = new Random(1);
+                for (int i = 0; i < 100 * rounds; i++) {
+                    int v = random.nextInt(G.V());
+                    G.takeDownVertex(v);
+                    G.restoreVertex(v);
+                    for (DirectedEdge e : G.adj(v)) {        // the writer may read the live lists
+                        G.changeEdge(e.from(), e.to(), 1 + random.nextInt(9));
+                        break;
+                    }
+                }
+            }
+        }, "writer");
+        writer.start();
+
+        Random random = new Random(2);
+        long taking = 0, searching = 0;
+        for (int i = 0; i < rounds; i++) {
+            long t0 = System.nanoTime();
+            GraphSnapshot snapshot = G.snapshot();
+            long t1 = System.nanoTime();
+            DijkstraSP sp = new DijkstraSP(snapshot, random.nextInt(snapshot.V()));
+            long t2 = System.nanoTime();
+            taking += t1 - t0; searching += t2 - t1;
+        }
+        writer.join();
+        System.out.printf("%d snapshots: %.2f ms to take, %.1f ms to search, on average%n",
+                          rounds, taking / 1e6 / rounds, searching / 1e6 / rounds);
+    }
+}
@@ -0,0 +1,233 @@
+/*************************************************************************
+ *  Compilation:  javac GraphView.java
+ *  Execution:    java GraphView graph.txt [failures]
+ *  Dependencies: EdgeWeightedDigraph.java WeightedDigraph.java DirectedEdge.java
+ *                Bag.java CSRDigraph.java ParallelPathEnumerator.java
+ *                LazyPrimMSTTrace.java DijkstraSP.java GraphFile.java
+ *
+ *  A what-if view of an edge-weighted digraph, with some vertices taken
+ *  down and some edges switched off, that shares the digraph's edges.
+ *
+ *************************************************************************/
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ *  The <tt>GraphView</tt> class shows an <tt>EdgeWeightedDigraph</tt> as
+ *  it would be with some more of its vertices down and some of its edges
+ *  disabled, without copying or changing it. The view holds two bitsets,
+ *  one bit per vertex and one per edge number, and <tt>adj(v)</tt> walks the
+ *  digraph's own list for v, skipping the edges into down vertices and the
+ *  disabled edges; the edges out of a down vertex are skipped by returning
+ *  nothing for it. Taking a vertex down or restoring it, and disabling or
+ *  enabling an edge, flip one bit.
+ *  <p>
+ *  Any number of views can share one digraph, each with its own failures.
+ *  A view always reads the digraph's current edges, so it sees changes made
+ *  to the digraph after it was made, and the vertices the digraph itself
+ *  has taken down are down in every view. <tt>version()</tt> changes when
+ *  either the digraph or the view does.
+ *  <p>
+ *  A view is a <tt>WeightedDigraph</tt>, so <tt>DijkstraSP</tt>,
+ *  <tt>CSRDigraph</tt> and the path enumerators run on it directly;
+ *  <tt>allPaths()</tt> prints paths as the digraph's does, and
+ *  <tt>mst()</tt> builds the minimum spanning forest of the view. Since the
+ *  edges are not counted as they are switched off, <tt>E()</tt> and
+ *  <tt>outdegree()</tt> count them when asked.
+ */
+public class GraphView implements WeightedDigraph {
+    private final EdgeWeightedDigraph G;
+    private final long[] down;              // bit v is set iff v is down in this view
+    private long[] disabled;                // bit i is set iff the edge numbered i is off
+    private int changes;                    // number of flips, for version()
+    private ParallelPathEnumerator enumerator;   // for allPaths, made on first use
+
+   /**
+     * Create a view of G with nothing switched off.
+     */
+    public GraphView(EdgeWeightedDigraph G) {
+        this.G = G;
+        down = new long[(G.V() + 63) >>> 6];
+        disabled = new long[1];
+    }
+
+   /**
+     * Return the digraph this is a view of.
+     */
+    public EdgeWeightedDigraph base() {
+        return G;
+    }
+
+   /**
+     * Take v down in this view.
+     * @throws java.lang.IndexOutOfBoundsException unless v is a vertex of the digraph
+     */
+    public void takeDownVertex(int v) {
+        validate(v);
+        down[v >>> 6] |= 1L << v;
+        changes++;
+    }
+
+   /**
+     * Bring v back up in this view; it stays down if it is down in the digraph.
+     * @throws java.lang.IndexOutOfBoundsException unless v is a vertex of the digraph
+     */
+    public void restoreVertex(int v) {
+        validate(v);
+        down[v >>> 6] &= ~(1L << v);
+        changes++;
+    }
+
+   /**
+     * Is v down in this view?
+     * @throws java.lang.IndexOutOfBoundsException unless v is a vertex of the digraph
+     */
+    public boolean isDown(int v) {
+        validate(v);
+        return (down[v >>> 6] & (1L << v)) != 0;
+    }
+
+   /**
+     * Switch the edge e of the digraph off in this view.
+     * @throws java.lang.IllegalArgumentException if e is not an edge of the digraph
+     */
+    public void disableEdge(DirectedEdge e) {
+        int i = id(e);
+        if ((i >>> 6) >= disabled.length)
+            disabled = Arrays.copyOf(disabled, Math.max(2 * disabled.length, (i >>> 6) + 1));
+        disabled[i >>> 6] |= 1L << i;
+        changes++;
+    }
+
+   /**
+     * Switch the edge e back on in this view.
+     * @throws java.lang.IllegalArgumentException if e is not an edge of the digraph
+     */
+    public void enableEdge(DirectedEdge e) {
+        int i = id(e);
+        if ((i >>> 6) < disabled.length) disabled[i >>> 6] &= ~(1L << i);
+        changes++;
+    }
+
+    // the bitset has room for up to 63 more vertices than there are, so check against V
+    private void validate(int v) {
+        if (v < 0 || v >= G.V())
+            throw new IndexOutOfBoundsException("vertex " + v + " is not between 0 and " + (G.V() - 1));
+    }
+
+    private int id(DirectedEdge e) {
+        int i = G.id(e);
+        if (i == -1) throw new IllegalArgumentException("edge " + e + " is not in the digraph");
+        return i;
+    }
+
+    public int V() {
+        return G.V();
+    }
+
+    // counts the edges, so takes time proportional to V + E
+    public int E() {
+        int E = 0;
+        for (int v = 0; v < G.V(); v++)
+            E += outdegree(v);
+        return E;
+    }
+
+    public int version() {
+        return G.version() + changes;      // both only grow
+    }
+
+    // counts the edges, so takes time proportional to the outdegree in the digraph
+    public int outdegree(int v) {
+        int n = 0;
+        for (DirectedEdge e : adj(v))
+            n++;
+        return n;
+    }
+
+    public Iterable<DirectedEdge> adj(int v) {
+        if (isDown(v)) return new Bag<DirectedEdge>();
+        return G.adj(v, down, disabled);
+    }
+
+    public Iterable<DirectedEdge> edges() {
+        Bag<DirectedEdge> list = new Bag<DirectedEdge>();
+        for (int v = 0; v < G.V(); v++)
+            for (DirectedEdge e : adj(v))
+                list.add(e);
+        return list;
+    }
+
+   /**
+     * Print the simple paths from start to end in this view whose weight is
+     * at most limit, as <tt>EdgeWeightedDigraph.allPaths()</tt> does, up to its cap and time limit.
+     */
+    public void allPaths(int start, int end, double limit) {
+        allPaths(start, end, limit, ParallelPathEnumerator.MAX_PATHS, ParallelPathEnumerator.TIMEOUT_MILLIS);
+    }
+
+   /**
+     * Print the first maxPaths such paths, searching for at most timeoutMillis
+     * milliseconds (0 for no limit).
+     */
+    public void allPaths(int start, int end, double limit, long maxPaths, long timeoutMillis) {
+        if (enumerator == null) enumerator = new ParallelPathEnumerator(this);
+        EdgeWeightedDigraph.printPaths(enumerator.enumerate(start, end, limit, maxPaths, timeoutMillis), System.out);
+    }
+
+   /**
+     * Return the minimum spanning forest of this view, taking each edge as undirected.
+     */
+    public LazyPrimMSTTrace mst() {
+        return new LazyPrimMSTTrace(new CSRDigraph(this));
+    }
+
+   /**
+     * Return a string representation of this view, as the digraph's.
+     */
+    public String toString() {
+        String NEWLINE = System.getProperty("line.separator");
+        StringBuilder s = new StringBuilder();
+        for (int v = 0; v < G.V(); v++) {
+            s.append(v + ": ");
+            for (DirectedEdge e : adj(v))
+                s.append(e + "  ");
+            s.append(NEWLINE);
+        }
+        return s.toString();
+    }
+
+    // fail random vertices in a few views and compare with taking them down for real
+    public static void main(String[] args) throws Exception {
+        EdgeWeightedDigraph G = GraphFile.read(args[0]);
+        int failures = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        Random random = new Random(0);
+        for (int k = 0; k < 3; k++) {
+            GraphView view = new GraphView(G);
+            int[] failed = new int[failures];
+            long t0 = System.nanoTime();
+            for (int i = 0; i < failures; i++) {
+                failed[i] = random.nextInt(G.V());
+                view.takeDownVertex(failed[i]);
+            }
+            long t1 = System.nanoTime();
+            int s = random.nextInt(G.V());
+            while (view.isDown(s)) s = random.nextInt(G.V());
+            DijkstraSP onView = new DijkstraSP(view, s);
+            long t2 = System.nanoTime();
+
+            EdgeWeightedDigraph copy = new EdgeWeightedDigraph(new CSRDigraph(G));
+            for (int v : failed) copy.takeDownVertex(v);
+            DijkstraSP onCopy = new DijkstraSP(copy, s);
+            int reachable = 0;
+            for (int v = 0; v < G.V(); v++) {
+                if (onView.distTo(v) != onCopy.distTo(v))
+                    throw new IllegalStateException("distance to " + v + " differs");
+                if (onView.hasPathTo(v)) reachable++;
+            }
+            System.out.printf("view %d: %d failures in %.3f ms, %d reachable from %d, Dijkstra on the view %.1f ms%n",
+                              k, failures, (t1 - t0) / 1e6, reachable, s, (t2 - t1) / 1e6);
+        }
+    }
+}
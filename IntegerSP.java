@@ -0,0 +1,359 @@
+/*************************************************************************
+ *  Compilation:  javac IntegerSP.java
+ *  Execution:    java IntegerSP graph.txt [sources]
+ *  Dependencies: EdgeWeightedDigraph.java CSRDigraph.java DijkstraSP.java
+ *                ShortestPathTree.java Stack.java DirectedEdge.java
+ *
+ *  Dijkstra's algorithm for integer weights, on a bucket queue (Dial)
+ *  when the weights are small and on a radix heap otherwise.
+ *
+ *************************************************************************/
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ *  The <tt>IntegerSP</tt> class computes the shortest path tree of a source
+ *  in a digraph whose weights are all nonnegative integers, such as the
+ *  networks <tt>Assig5</tt> reads. Distances are kept as <tt>long</tt>s and
+ *  the priority queue takes advantage of two facts: keys are integers, and
+ *  Dijkstra's algorithm removes them in nondecreasing order.
+ *  <p>
+ *  If the largest weight C is at most <tt>DIAL_LIMIT</tt>, every key on the
+ *  queue lies between the current distance d and d + C, so C + 1 buckets
+ *  used round-robin hold the queue, and each operation takes constant time
+ *  (Dial's algorithm). Otherwise a radix heap keeps 65 buckets, one for
+ *  each bit in which a key can first differ from the last key removed; an
+ *  item only ever moves to a lower bucket, so it is moved at most 64 times.
+ *  Neither queue needs decrease-key: a vertex is pushed again with its new
+ *  distance, and entries that are out of date are skipped when removed.
+ *  <p>
+ *  Sums of integers below 2<sup>53</sup> are exact in floating point, so
+ *  <tt>distTo()</tt> is identical to <tt>DijkstraSP.distTo()</tt>. Among
+ *  vertices at equal distance the buckets settle them in a different order
+ *  than a binary heap does, so where two shortest paths tie the tree may
+ *  hold the other one; every path it returns is a shortest path. Callers
+ *  that must print the same path as <tt>DijkstraSP</tt> use that instead.
+ *  The callers that need only distances pick this class by themselves when
+ *  every weight is an integer: the tables of <tt>Landmarks</tt>, and
+ *  <tt>DistanceMatrix</tt> when it keeps no trees, which runs its searches
+ *  on the queues of this class. <tt>SPTCache</tt> builds its trees with it
+ *  only when asked to.
+ */
+public class IntegerSP implements ShortestPathTree {
+    public static final int DIAL_LIMIT = 1 << 12;     // largest weight handled with Dial's buckets
+    private static final double MAX_WEIGHT = 1L << 53;
+
+    private final long[] distTo;          // distTo[v] = distance of shortest s->v path, -1 if none
+    private final DirectedEdge[] edgeTo;  // edgeTo[v] = last edge on shortest s->v path
+    private final boolean dial;           // were Dial's buckets used?
+
+   /**
+     * Compute the shortest path tree of s in G.
+     * @throws java.lang.IllegalArgumentException unless every weight is a nonnegative integer
+     */
+    public IntegerSP(EdgeWeightedDigraph G, int s) {
+        long C = maxWeight(G);
+        distTo = new long[G.V()];
+        edgeTo = new DirectedEdge[G.V()];
+        Arrays.fill(distTo, -1);
+        dial = C <= DIAL_LIMIT;
+        MonotoneQueue pq = queue(C);
+
+        boolean[] settled = new boolean[G.V()];
+        distTo[s] = 0;
+        pq.push(s, 0);
+        for (int v = pq.pop(); v != -1; v = pq.pop()) {
+            if (settled[v] || pq.key() != distTo[v]) continue;    // out of date
+            settled[v] = true;
+            for (DirectedEdge e : G.adj(v)) {
+                int w = e.to();
+                long dist = distTo[v] + (long) e.weight();
+                if (distTo[w] == -1 || dist < distTo[w]) {
+                    distTo[w] = dist;
+                    edgeTo[w] = e;
+                    pq.push(w, dist);
+                }
+            }
+        }
+    }
+
+   /**
+     * Compute the shortest path tree of s in the frozen digraph G, relaxing slots in order.
+     * @throws java.lang.IllegalArgumentException unless every weight is a nonnegative integer
+     */
+    public IntegerSP(CSRDigraph G, int s) {
+        long C = maxWeight(G);
+        distTo = new long[G.V()];
+        edgeTo = new DirectedEdge[G.V()];
+        Arrays.fill(distTo, -1);
+        dial = C <= DIAL_LIMIT;
+        MonotoneQueue pq = queue(C);
+
+        int[] slotTo = new int[G.V()];
+        boolean[] settled = new boolean[G.V()];
+        distTo[s] = 0;
+        slotTo[s] = -1;
+        pq.push(s, 0);
+        for (int v = pq.pop(); v != -1; v = pq.pop()) {
+            if (settled[v] || pq.key() != distTo[v]) continue;
+            settled[v] = true;
+            for (int i = G.begin(v); i < G.end(v); i++) {
+                int w = G.target(i);
+                long dist = distTo[v] + (long) G.weight(i);
+                if (distTo[w] == -1 || dist < distTo[w]) {
+                    distTo[w] = dist;
+                    slotTo[w] = i;
+                    pq.push(w, dist);
+                }
+            }
+        }
+
+        for (int v = 0; v < G.V(); v++)
+            if (distTo[v] != -1 && v != s) edgeTo[v] = G.edge(slotTo[v]);
+    }
+
+   /**
+     * Return the largest weight in G, which must be a nonnegative integer,
+     * as must every other weight.
+     * @throws java.lang.IllegalArgumentException if a weight is not
+     */
+    public static long maxWeight(EdgeWeightedDigraph G) {
+        long C = 0;
+        for (int v = 0; v < G.V(); v++)
+            for (DirectedEdge e : G.adj(v))
+                C = Math.max(C, integral(e.weight()));
+        return C;
+    }
+
+   /**
+     * Return the largest weight in the frozen digraph G; see maxWeight(EdgeWeightedDigraph).
+     */
+    public static long maxWeight(CSRDigraph G) {
+        long C = 0;
+        for (int i = 0; i < G.E(); i++)
+            C = Math.max(C, integral(G.weight(i)));
+        return C;
+    }
+
+   /**
+     * Is every weight in the frozen digraph G a nonnegative integer?
+     */
+    public static boolean isIntegral(CSRDigraph G) {
+        for (int i = 0; i < G.E(); i++)
+            if (!isIntegral(G.weight(i))) return false;
+        return true;
+    }
+
+   /**
+     * Is every weight in G a nonnegative integer?
+     */
+    public static boolean isIntegral(EdgeWeightedDigraph G) {
+        for (int v = 0; v < G.V(); v++)
+            for (DirectedEdge e : G.adj(v))
+                if (!isIntegral(e.weight())) return false;
+        return true;
+    }
+
+   /**
+     * Is the weight a nonnegative integer small enough for exact sums?
+     */
+    public static boolean isIntegral(double weight) {
+        return weight >= 0 && weight < MAX_WEIGHT && weight == Math.rint(weight);
+    }
+
+    private static long integral(double weight) {
+        if (!isIntegral(weight))
+            throw new IllegalArgumentException("weight " + weight + " is not a nonnegative integer");
+        return (long) weight;
+    }
+
+   /**
+     * Return the shortest path tree of s in G: an <tt>IntegerSP</tt> if every
+     * weight is a nonnegative integer, a <tt>DijkstraSP</tt> otherwise.
+     */
+    public static ShortestPathTree tree(EdgeWeightedDigraph G, int s) {
+        if (isIntegral(G)) return new IntegerSP(G, s);
+        return new DijkstraSP(G, s);
+    }
+
+   /**
+     * Return the shortest path tree of s in the frozen digraph G, as
+     * <tt>tree(EdgeWeightedDigraph, int)</tt> does.
+     */
+    public static ShortestPathTree tree(CSRDigraph G, int s) {
+        if (isIntegral(G)) return new IntegerSP(G, s);
+        return new DijkstraSP(G, s);
+    }
+
+    // length of shortest path from s to v
+    public double distTo(int v) {
+        return (distTo[v] == -1) ? Double.POSITIVE_INFINITY : distTo[v];
+    }
+
+    // is there a path from s to v?
+    public boolean hasPathTo(int v) {
+        return distTo[v] != -1;
+    }
+
+    // last edge on shortest path from s to v, null if v is s or unreachable
+    public DirectedEdge edgeTo(int v) {
+        return edgeTo[v];
+    }
+
+    // shortest path from s to v as an Iterable, null if no such path
+    public Iterable<DirectedEdge> pathTo(int v) {
+        if (!hasPathTo(v)) return null;
+        Stack<DirectedEdge> path = new Stack<DirectedEdge>();
+        for (DirectedEdge e = edgeTo[v]; e != null; e = edgeTo[e.from()]) {
+            path.push(e);
+        }
+        return path;
+    }
+
+    // were Dial's buckets used, rather than the radix heap?
+    public boolean usedDial() {
+        return dial;
+    }
+
+
+   /**************************************************************
+    * Monotone priority queues of vertices with integer keys; the
+    * key pushed must never be less than the last key popped
+    **************************************************************/
+    static abstract class MonotoneQueue {
+        long key;                          // key of the vertex last popped
+
+        abstract void push(int v, long key);
+        abstract int pop();                // a vertex of least key, -1 if empty
+        abstract void clear();             // empty the queue for a search from 0
+
+        long key() {
+            return key;
+        }
+    }
+
+    // the queue for weights of at most C
+    static MonotoneQueue queue(long C) {
+        return (C <= DIAL_LIMIT) ? new Dial((int) C) : new RadixHeap();
+    }
+
+    // C + 1 buckets used round-robin; bucket d % (C+1) holds the vertices of key d
+    private static class Dial extends MonotoneQueue {
+        private final int[][] bucket;
+        private final int[] size;
+        private int N;
+
+        Dial(int C) {
+            bucket = new int[C + 1][];
+            size = new int[C + 1];
+        }
+
+        void push(int v, long d) {
+            int b = (int) (d % bucket.length);
+            if (bucket[b] == null) bucket[b] = new int[4];
+            else if (size[b] == bucket[b].length) bucket[b] = Arrays.copyOf(bucket[b], 2 * size[b]);
+            bucket[b][size[b]++] = v;
+            N++;
+        }
+
+        void clear() {
+            Arrays.fill(size, 0);
+            N = 0;
+            key = 0;
+        }
+
+        int pop() {
+            if (N == 0) return -1;
+            int b = (int) (key % bucket.length);
+            while (size[b] == 0) {
+                key++;
+                if (++b == bucket.length) b = 0;
+            }
+            N--;
+            return bucket[b][--size[b]];
+        }
+    }
+
+    // bucket i > 0 holds the keys whose highest bit differing from the last key popped is bit i-1
+    private static class RadixHeap extends MonotoneQueue {
+        private final int[][] vertex = new int[65][];
+        private final long[][] keys = new long[65][];
+        private final int[] size = new int[65];
+        private int N;
+
+        private int bucketOf(long d) {
+            return 64 - Long.numberOfLeadingZeros(d ^ key);
+        }
+
+        void push(int v, long d) {
+            add(bucketOf(d), v, d);
+            N++;
+        }
+
+        private void add(int b, int v, long d) {
+            if (vertex[b] == null) {
+                vertex[b] = new int[4];
+                keys[b] = new long[4];
+            }
+            else if (size[b] == vertex[b].length) {
+                vertex[b] = Arrays.copyOf(vertex[b], 2 * size[b]);
+                keys[b] = Arrays.copyOf(keys[b], 2 * size[b]);
+            }
+            vertex[b][size[b]] = v;
+            keys[b][size[b]++] = d;
+        }
+
+        void clear() {
+            Arrays.fill(size, 0);
+            N = 0;
+            key = 0;
+        }
+
+        int pop() {
+            if (N == 0) return -1;
+            if (size[0] == 0) {
+                // move the least nonempty bucket down, relative to its own minimum
+                int b = 1;
+                while (size[b] == 0) b++;
+                long min = keys[b][0];
+                for (int i = 1; i < size[b]; i++)
+                    min = Math.min(min, keys[b][i]);
+                key = min;
+                int n = size[b];
+                size[b] = 0;
+                for (int i = 0; i < n; i++)
+                    add(bucketOf(keys[b][i]), vertex[b][i], keys[b][i]);
+            }
+            N--;
+            return vertex[0][--size[0]];
+        }
+    }
+
+    // compare with DijkstraSP from random sources
+    public static void main(String[] args) throws Exception {
+        EdgeWeightedDigraph G = GraphFile.read(args[0]);
+        int sources = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        Random random = new Random(0);
+        long heap = 0, buckets = 0;
+        int differentPaths = 0;
+        IntegerSP sp = null;
+        for (int k = 0; k < sources; k++) {
+            int s = random.nextInt(G.V());
+            long t0 = System.nanoTime();
+            DijkstraSP reference = new DijkstraSP(G, s);
+            long t1 = System.nanoTime();
+            sp = new IntegerSP(G, s);
+            long t2 = System.nanoTime();
+            heap += t1 - t0; buckets += t2 - t1;
+            for (int v = 0; v < G.V(); v++) {
+                if (reference.distTo(v) != sp.distTo(v))
+                    throw new IllegalStateException("distance from " + s + " to " + v + " differs");
+                if (reference.edgeTo(v) != sp.edgeTo(v)) differentPaths++;
+            }
+        }
+        System.out.printf("DijkstraSP %.2f ms, IntegerSP (%s) %.2f ms per source, %.2fx; %d tree edges differ on ties%n",
+                          heap / 1e6 / sources, sp.usedDial() ? "Dial" : "radix heap", buckets / 1e6 / sources,
+                          (double) heap / buckets, differentPaths);
+    }
+}
@@ -0,0 +1,371 @@
+/*************************************************************************
+ *  Compilation:  javac Landmarks.java
+ *  Execution:    java Landmarks graph.txt k [avoid | farthest]
+ *  Dependencies: CSRDigraph.java DijkstraSP.java IntegerSP.java GraphFile.java
+ *
+ *  Landmark distance tables for ALT (A*, landmarks, triangle inequality)
+ *  shortest path queries.
+ *
+ *  % java Landmarks graph2.txt 4
+ *  Wrote 4 landmarks for 15 vertices to graph2.txt.alt
+ *
+ *************************************************************************/
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ *  The <tt>Landmarks</tt> class holds, for a few landmark vertices L, the
+ *  shortest path distances d(L,v) from L to every vertex v and, for directed
+ *  graphs, the distances d(v,L) back to L. By the triangle inequality
+ *  <pre>
+ *      d(v,t) &ge; d(L,t) - d(L,v)      and      d(v,t) &ge; d(v,L) - d(t,L)
+ *  </pre>
+ *  so the largest of these differences over all landmarks is a lower bound
+ *  on the remaining distance to t, which <tt>ALTSP</tt> uses to steer A*.
+ *  <p>
+ *  Landmarks are chosen with one of two heuristics. <em>Farthest</em> picks
+ *  each new landmark as far as possible from the ones already chosen.
+ *  <em>Avoid</em> grows a shortest path tree from a random root, weighs each
+ *  vertex by how badly the current landmarks bound its distance from the
+ *  root, and descends into the heaviest subtree that holds no landmark yet;
+ *  it gives tighter bounds for the same k and is the default.
+ *  <p>
+ *  The tables take time proportional to k Dijkstra searches to build, and
+ *  can be written to and read back from a file together with a fingerprint
+ *  of the graph they were built for, so that they are computed offline and
+ *  loaded at startup.
+ */
+public class Landmarks {
+    private static final int MAGIC   = 0x314c5441;     // "ALT1" read as a little-endian int
+    private static final int VERSION = 1;
+    private static final int HEADER  = 32;             // magic, version, V, k, undirected, pad, fingerprint
+
+    private final int V;
+    private final int[] landmarks;      // landmarks[i] = vertex of the i-th landmark
+    private final double[][] from;      // from[i][v] = d(landmarks[i], v)
+    private final double[][] to;        // to[i][v] = d(v, landmarks[i]); same arrays as from if undirected
+    private final boolean undirected;
+    private final long fingerprint;     // fingerprint() of the graph the tables describe
+
+    private Landmarks(int V, int[] landmarks, double[][] from, double[][] to, boolean undirected, long fingerprint) {
+        this.V = V;
+        this.landmarks = landmarks;
+        this.from = from;
+        this.to = to;
+        this.undirected = undirected;
+        this.fingerprint = fingerprint;
+    }
+
+   /**
+     * Choose k landmarks in G with the avoid heuristic and compute their tables.
+     * If undirected is true, G must contain the twin of every edge.
+     */
+    public static Landmarks avoid(CSRDigraph G, int k, boolean undirected) {
+        return choose(G, k, undirected, true);
+    }
+
+   /**
+     * Choose k landmarks in G with the farthest heuristic and compute their tables.
+     * If undirected is true, G must contain the twin of every edge.
+     */
+    public static Landmarks farthest(CSRDigraph G, int k, boolean undirected) {
+        return choose(G, k, undirected, false);
+    }
+
+   /**
+     * Recompute the tables for the same landmark vertices on a changed graph.
+     */
+    public Landmarks recompute(CSRDigraph G) {
+        if (G.V() != V) throw new IllegalArgumentException("graph has " + G.V() + " vertices, tables have " + V);
+        CSRDigraph R = undirected ? G : G.reverse();
+        double[][] from = new double[landmarks.length][];
+        double[][] to = undirected ? from : new double[landmarks.length][];
+        for (int i = 0; i < landmarks.length; i++) {
+            from[i] = distances(G, landmarks[i]);
+            if (!undirected) to[i] = distances(R, landmarks[i]);
+        }
+        return new Landmarks(V, landmarks.clone(), from, to, undirected, fingerprint(G));
+    }
+
+    private static Landmarks choose(CSRDigraph G, int k, boolean undirected, boolean avoid) {
+        int V = G.V();
+        if (k < 1 || k > V) throw new IllegalArgumentException("number of landmarks must be between 1 and V");
+        CSRDigraph R = undirected ? G : G.reverse();
+        Random random = new Random(V);
+        int[] landmarks = new int[k];
+        double[][] from = new double[k][];
+        double[][] to = undirected ? from : new double[k][];
+        boolean[] chosen = new boolean[V];
+
+        for (int i = 0; i < k; i++) {
+            Landmarks sofar = new Landmarks(V, Arrays.copyOf(landmarks, i), Arrays.copyOf(from, i),
+                                            undirected ? Arrays.copyOf(from, i) : Arrays.copyOf(to, i),
+                                            undirected, 0);
+            int L = avoid ? sofar.avoidPick(G, random, chosen) : sofar.farthestPick(G, random, chosen);
+            landmarks[i] = L;
+            chosen[L] = true;
+            from[i] = distances(G, L);
+            if (!undirected) to[i] = distances(R, L);
+        }
+        return new Landmarks(V, landmarks, from, to, undirected, fingerprint(G));
+    }
+
+    // the vertex whose nearest landmark is farthest away; vertices no landmark
+    // reaches come first, and the first landmark is the vertex farthest from a random one
+    private int farthestPick(CSRDigraph G, Random random, boolean[] chosen) {
+        double[] nearest;
+        if (landmarks.length == 0) nearest = distances(G, random.nextInt(V));
+        else {
+            nearest = new double[V];
+            Arrays.fill(nearest, Double.POSITIVE_INFINITY);
+            for (double[] d : from)
+                for (int v = 0; v < V; v++)
+                    nearest[v] = Math.min(nearest[v], d[v]);
+        }
+        int best = -1;
+        for (int v = 0; v < V; v++) {
+            if (chosen[v] || G.outdegree(v) == 0) continue;     // isolated vertices bound nothing
+            if (best == -1 || nearest[v] > nearest[best]) best = v;
+        }
+        for (int v = 0; best == -1; v++)
+            if (!chosen[v]) best = v;
+        return best;
+    }
+
+    // Goldberg and Werneck's avoid heuristic
+    private int avoidPick(CSRDigraph G, Random random, boolean[] chosen) {
+        int r = random.nextInt(V);
+        for (int tries = 0; G.outdegree(r) == 0 && tries < V; tries++)
+            r = (r + 1) % V;
+        DijkstraSP tree = new DijkstraSP(G, r);
+
+        // children lists of the shortest path tree, as a CSR of parent -> child
+        int[] parent = new int[V];
+        int[] childOffsets = new int[V + 1];
+        for (int v = 0; v < V; v++) {
+            DirectedEdge e = tree.edgeTo(v);
+            parent[v] = (e == null) ? -1 : e.from();
+            if (e != null) childOffsets[e.from() + 1]++;
+        }
+        for (int v = 0; v < V; v++)
+            childOffsets[v + 1] += childOffsets[v];
+        int[] children = new int[childOffsets[V]];
+        int[] next = Arrays.copyOf(childOffsets, V);
+        for (int v = 0; v < V; v++)
+            if (parent[v] >= 0) children[next[parent[v]]++] = v;
+
+        // post-order over the tree from r: size[v] = total weight of v's subtree,
+        // or 0 if a landmark lies in it
+        double[] size = new double[V];
+        boolean[] covered = new boolean[V];
+        int[] order = new int[V];
+        int n = 0;
+        order[n++] = r;
+        for (int head = 0; head < n; head++) {
+            int v = order[head];
+            for (int c = childOffsets[v]; c < childOffsets[v + 1]; c++)
+                order[n++] = children[c];
+        }
+        for (int j = n - 1; j >= 0; j--) {
+            int v = order[j];
+            covered[v] = chosen[v];
+            double weight = tree.distTo(v) - lowerBound(r, v);
+            size[v] = Math.max(weight, 0.0);
+            for (int c = childOffsets[v]; c < childOffsets[v + 1]; c++) {
+                covered[v] |= covered[children[c]];
+                size[v] += size[children[c]];
+            }
+            if (covered[v]) size[v] = 0.0;
+        }
+
+        int v = -1;
+        for (int j = 0; j < n; j++)
+            if (size[order[j]] > 0 && (v == -1 || size[order[j]] > size[v])) v = order[j];
+        if (v == -1) return farthestPick(G, random, chosen);    // everything reachable is covered
+
+        // descend to a leaf, always into the heaviest child
+        while (true) {
+            int heaviest = -1;
+            for (int c = childOffsets[v]; c < childOffsets[v + 1]; c++)
+                if (heaviest == -1 || size[children[c]] > size[heaviest]) heaviest = children[c];
+            if (heaviest == -1 || size[heaviest] == 0) return v;
+            v = heaviest;
+        }
+    }
+
+    // the tables need only distances, so integer weights are searched with
+    // buckets; the trees avoidPick() walks come from DijkstraSP, whose ties
+    // decide which landmarks are chosen
+    private static double[] distances(CSRDigraph G, int s) {
+        ShortestPathTree sp = IntegerSP.tree(G, s);
+        double[] dist = new double[G.V()];
+        for (int v = 0; v < G.V(); v++)
+            dist[v] = sp.distTo(v);
+        return dist;
+    }
+
+   /**
+     * Return a lower bound on the distance from v to t. The bound is infinite
+     * when the tables prove that t cannot be reached from v.
+     */
+    public double lowerBound(int v, int t) {
+        double bound = 0.0;
+        for (int i = 0; i < landmarks.length; i++) {
+            double Lv = from[i][v], Lt = from[i][t];          // d(L,v), d(L,t)
+            if (Lv < Double.POSITIVE_INFINITY) {
+                if (Lt == Double.POSITIVE_INFINITY) return Double.POSITIVE_INFINITY;  // L reaches v but not t
+                bound = Math.max(bound, Lt - Lv);
+            }
+            double vL = to[i][v], tL = to[i][t];              // d(v,L), d(t,L)
+            if (tL < Double.POSITIVE_INFINITY) {
+                if (vL == Double.POSITIVE_INFINITY) return Double.POSITIVE_INFINITY;  // t reaches L but not v
+                bound = Math.max(bound, vL - tL);
+            }
+        }
+        return bound;
+    }
+
+   /**
+     * Return the number of landmarks.
+     */
+    public int size() {
+        return landmarks.length;
+    }
+
+   /**
+     * Return the vertex of the i-th landmark.
+     */
+    public int landmark(int i) {
+        return landmarks[i];
+    }
+
+   /**
+     * Do these tables describe the graph G?
+     */
+    public boolean describes(CSRDigraph G) {
+        return G.V() == V && fingerprint(G) == fingerprint;
+    }
+
+   /**
+     * Return a 64-bit hash of every edge of G and its weight, in slot order.
+     */
+    public static long fingerprint(CSRDigraph G) {
+        long h = 1125899906842597L;
+        for (int v = 0; v < G.V(); v++) {
+            h = 31 * h + G.outdegree(v);
+            for (int i = G.begin(v); i < G.end(v); i++)
+                h = 31 * (31 * h + G.target(i)) + Double.doubleToLongBits(G.weight(i));
+        }
+        return h;
+    }
+
+   /**
+     * Write the tables to a file.
+     */
+    public void write(String fileName) throws IOException {
+        int k = landmarks.length;
+        long size = HEADER + 4L * k + 8L * k * V * (undirected ? 1 : 2);
+        size = (size + 7) & ~7L;
+        if (size > Integer.MAX_VALUE) throw new IOException("landmark tables are too large for a single 2GB mapping");
+
+        ByteBuffer buf = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        buf.putInt(MAGIC).putInt(VERSION).putInt(V).putInt(k).putInt(undirected ? 1 : 0).putInt(0).putLong(fingerprint);
+        for (int L : landmarks) buf.putInt(L);
+        buf.position((buf.position() + 7) & ~7);
+        for (double[] d : from) {
+            buf.asDoubleBuffer().put(d);
+            buf.position(buf.position() + 8 * V);
+        }
+        if (!undirected) {
+            for (double[] d : to) {
+                buf.asDoubleBuffer().put(d);
+                buf.position(buf.position() + 8 * V);
+            }
+        }
+        buf.rewind();
+
+        RandomAccessFile file = new RandomAccessFile(fileName, "rw");
+        try {
+            file.setLength(0);
+            FileChannel channel = file.getChannel();
+            while (buf.hasRemaining())
+                channel.write(buf);
+        }
+        finally {
+            file.close();
+        }
+    }
+
+   /**
+     * Read tables written by <tt>write()</tt>.
+     * @throws java.io.IOException if the file is truncated or not a landmark file
+     */
+    public static Landmarks read(String fileName) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(fileName, "r");
+        MappedByteBuffer buf;
+        try {
+            buf = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+        }
+        finally {
+            file.close();
+        }
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        if (buf.limit() < HEADER || buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION)
+            throw new IOException(fileName + " is not a landmark file");
+        int V = buf.getInt(8), k = buf.getInt(12);
+        boolean undirected = buf.getInt(16) != 0;
+        long fingerprint = buf.getLong(24);
+        int tables = undirected ? 1 : 2;
+        if (V < 0 || k < 0 || buf.limit() < HEADER + ((4L * k + 7) & ~7L) + 8L * k * V * tables)
+            throw new IOException(fileName + " is truncated or has a corrupt header");
+
+        int[] landmarks = new int[k];
+        buf.position(HEADER);
+        buf.asIntBuffer().get(landmarks);
+        buf.position((HEADER + 4 * k + 7) & ~7);
+        double[][] from = new double[k][V];
+        double[][] to = undirected ? from : new double[k][V];
+        for (double[] d : from) {
+            buf.asDoubleBuffer().get(d);
+            buf.position(buf.position() + 8 * V);
+        }
+        if (!undirected) {
+            for (double[] d : to) {
+                buf.asDoubleBuffer().get(d);
+                buf.position(buf.position() + 8 * V);
+            }
+        }
+        return new Landmarks(V, landmarks, from, to, undirected, fingerprint);
+    }
+
+   /**
+     * Read the tables from fileName if it exists and describes G, otherwise
+     * choose k landmarks with the avoid heuristic and write them to fileName.
+     */
+    public static Landmarks open(CSRDigraph G, String fileName, int k, boolean undirected) throws IOException {
+        if (new File(fileName).exists()) {
+            Landmarks L = read(fileName);
+            if (L.describes(G) && L.undirected == undirected) return L;
+        }
+        Landmarks L = avoid(G, Math.min(k, G.V()), undirected);
+        L.write(fileName);
+        return L;
+    }
+
+    public static void main(String[] args) throws IOException {
+        CSRDigraph G = new CSRDigraph(GraphFile.read(args[0]));
+        int k = Integer.parseInt(args[1]);
+        boolean farthest = args.length > 2 && args[2].equals("farthest");
+        Landmarks L = farthest ? farthest(G, k, true) : avoid(G, k, true);
+        L.write(args[0] + ".alt");
+        System.out.println("Wrote " + L.size() + " landmarks for " + G.V() + " vertices to " + args[0] + ".alt");
+    }
+}
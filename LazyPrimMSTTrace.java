@@ -5,7 +5,7 @@
  *  Compilation:  javac LazyPrimMSTTrace.java
  *  Execution:    java LazyPrimMSTTrace V E
  *  Dependencies: EdgeWeightedGraph.java Edge.java Queue.java MinPQ.java
- *                UF.java
+ *                UF.java CSRDigraph.java SpanningForest.java
  *
  *  Prim's algorithm to compute a minimum spanning forest.
  *
@@ -13,7 +13,7 @@
 
 import java.util.*;
 
-public class LazyPrimMSTTrace {
+public class LazyPrimMSTTrace implements SpanningForest {
     private double weight;       // total weight of MST
     private Queue<Edge> mst;     // edges in the MST
     private boolean[] marked;    // marked[v] = true if v on tree
@@ -31,27 +31,108 @@ public class LazyPrimMSTTrace {
         assert check(G);
     }
 
-    //creates a temporary EdgeWeightedGraph out of the given EdgeWeighted Digraph
-    //
+    //computes the forest of a frozen copy of the network, which is left as it
+    //was; the CSR version lists the same edges in the same order
     public LazyPrimMSTTrace(EdgeWeightedDigraph network){
+        this(new CSRDigraph(network));
+    }
+
+    //builds the undirected graph straight from the CSR slots, without touching
+    //the original network. Assig5 used to copy the network with changeEdge and
+    //hand the copy to this trace, which took both twins of every link from it;
+    //the twins are added here in the order they were taken from that copy, so
+    //the trace breaks ties the same way and prints the same forest.
+    public LazyPrimMSTTrace(CSRDigraph network){
 
         int V = network.V();
-        int E = network.E()/2;
+        int E = network.E();
 
-        EdgeWeightedGraph realNetwork = new EdgeWeightedGraph(V);
+        //the copy went through network.edges(), which is every slot from last
+        //to first, and changeEdge made a link the first time it met the pair,
+        //dropped it at a weight of 0 or less, and otherwise gave it the weight
+        int[] tail = new int[E];
+        for(int v = 0; v < V; v++)
+            for(int i = network.begin(v); i < network.end(v); i++)
+                tail[i] = v;
+
+        //the slots of each pair together, in the order the copy met them
+        int[] met = new int[E];
+        for(int k = 0; k < E; k++)
+            met[k] = E - 1 - k;
+        met = byEnd(met, tail, network, V, false);
+        met = byEnd(met, tail, network, V, true);
+
+        //made[i] = weight the link made by slot i ended with, NaN if none
+        double[] made = new double[E];
+        Arrays.fill(made, Double.NaN);
+        for(int k = 0; k < E; ){
+            int run = met[k], link = -1;
+            double w = 0.0;
+            for(; k < E && samePair(met[k], run, tail, network); k++){
+                int i = met[k];
+                if(network.weight(i) <= 0) link = -1;
+                else{
+                    if(link == -1) link = i;
+                    w = network.weight(i);
+                }
+            }
+            if(link != -1) made[link] = w;
+        }
 
-        for(DirectedEdge e : network.edges()){
-            realNetwork.addEdge(new Edge(e.to(),e.from(),e.weight()));
-            network.changeEdge(e.to(), e.from(), -1);
+        //each vertex's list in the copy, in the order its links were made
+        int[] first = new int[V + 1];
+        for(int i = 0; i < E; i++)
+            if(!Double.isNaN(made[i])){ first[tail[i] + 1]++; first[network.target(i) + 1]++; }
+        for(int v = 0; v < V; v++)
+            first[v + 1] += first[v];
+        int[] next = Arrays.copyOf(first, V);
+        int[] other = new int[first[V]];
+        double[] weight = new double[first[V]];
+        for(int i = E - 1; i >= 0; i--){
+            if(Double.isNaN(made[i])) continue;
+            int v = tail[i], w = network.target(i);
+            other[next[v]] = w;   weight[next[v]++] = made[i];
+            other[next[w]] = v;   weight[next[w]++] = made[i];
         }
+
+        //and the trace took them from the last vertex to the first
+        EdgeWeightedGraph realNetwork = new EdgeWeightedGraph(V);
+
+        for(int v = V - 1; v >= 0; v--)
+            for(int k = first[v]; k < first[v + 1]; k++)
+                realNetwork.addEdge(new Edge(other[k], v, weight[k]));
+
         mst = new Queue<Edge>();
         pq = new MinPQ<Edge>();
-        marked = new boolean[network.V()];
-        for(int v = 0; v < network.V(); v++)
-            if(!marked[v]) prim (realNetwork,v);
+        marked = new boolean[V];
+        for(int v = 0; v < V; v++)
+            if(!marked[v]) prim(realNetwork, v);
 
         assert check(realNetwork);
+    }
+
+    //stable counting sort of the slots by the lower or the higher end of each
+    private static int[] byEnd(int[] slots, int[] tail, CSRDigraph network, int V, boolean lower){
+        int[] count = new int[V + 1];
+        for(int i : slots)
+            count[end(i, tail, network, lower) + 1]++;
+        for(int v = 0; v < V; v++)
+            count[v + 1] += count[v];
+        int[] sorted = new int[slots.length];
+        for(int i : slots)
+            sorted[count[end(i, tail, network, lower)]++] = i;
+        return sorted;
+    }
 
+    private static int end(int i, int[] tail, CSRDigraph network, boolean lower){
+        int v = tail[i], w = network.target(i);
+        return lower ? Math.min(v, w) : Math.max(v, w);
+    }
+
+    //do slots i and j join the same two vertices?
+    private static boolean samePair(int i, int j, int[] tail, CSRDigraph network){
+        return end(i, tail, network, true) == end(j, tail, network, true)
+            && end(i, tail, network, false) == end(j, tail, network, false);
     }
 
     // run Prim's algorithm
@@ -167,4 +248,69 @@ public class LazyPrimMSTTrace {
 
         return true;
     }
+
+    // check optimality conditions of any engine's forest of G, taking each slot as
+    // an undirected edge (takes time proportional to E V lg* V)
+    static boolean check(SpanningForest forest, CSRDigraph G) {
+
+        // the tail of each slot
+        int[] from = new int[G.E()];
+        for (int v = 0; v < G.V(); v++)
+            for (int i = G.begin(v); i < G.end(v); i++)
+                from[i] = v;
+
+        // check weight
+        double weight = 0.0;
+        for (Edge e : forest.edges()) {
+            weight += e.weight();
+        }
+        double EPSILON = 1E-12;
+        if (Math.abs(weight - forest.weight()) > EPSILON) {
+            System.err.printf("Weight of edges does not equal weight(): %f vs. %f\n", weight, forest.weight());
+            return false;
+        }
+
+        // check that it is acyclic
+        UF uf = new UF(G.V());
+        for (Edge e : forest.edges()) {
+            int v = e.either(), w = e.other(v);
+            if (uf.connected(v, w)) {
+                System.err.println("Not a forest");
+                return false;
+            }
+            uf.union(v, w);
+        }
+
+        // check that it is a spanning forest
+        for (int i = 0; i < G.E(); i++) {
+            if (!uf.connected(from[i], G.target(i))) {
+                System.err.println("Not a spanning forest");
+                return false;
+            }
+        }
+
+        // check that it is a minimal spanning forest (cut optimality conditions)
+        for (Edge e : forest.edges()) {
+
+            // all edges in MST except e
+            uf = new UF(G.V());
+            for (Edge f : forest.edges()) {
+                int x = f.either(), y = f.other(x);
+                if (f != e) uf.union(x, y);
+            }
+
+            // check that e is min weight edge in crossing cut
+            for (int i = 0; i < G.E(); i++) {
+                if (!uf.connected(from[i], G.target(i))) {
+                    if (G.weight(i) < e.weight()) {
+                        System.err.println("Edge " + G.edge(i) + " violates cut optimality conditions");
+                        return false;
+                    }
+                }
+            }
+
+        }
+
+        return true;
+    }
 }
@@ -0,0 +1,174 @@
+/*************************************************************************
+ *  Compilation:  javac LinearProbingLongST.java
+ *  Execution:    java LinearProbingLongST
+ *
+ *  Symbol table with primitive long keys, implemented using a linear
+ *  probing hash table.
+ *
+ *************************************************************************/
+
+/**
+ *  The <tt>LinearProbingLongST</tt> class is <tt>LinearProbingHashST</tt>
+ *  specialized to <tt>long</tt> keys: the keys are held in a
+ *  <tt>long[]</tt>, so putting and getting never box a key, and a slot is
+ *  empty when its value is null, so values may not be null. The table is
+ *  kept between one eighth and one half full, so <em>get</em>,
+ *  <em>put</em> and <em>delete</em> take constant expected time.
+ *  <p>
+ *  <tt>EdgeWeightedDigraph</tt> uses it to find the edges between two
+ *  vertices, under the key <tt>pack(from, to)</tt>.
+ */
+public class LinearProbingLongST<Value> {
+    private int N;           // number of key-value pairs in the table
+    private int M;           // size of linear probing table, a power of two
+    private long[] keys;     // the keys
+    private Value[] vals;    // the values, null for an empty slot
+
+    // create an empty hash table - use 16 as default size
+    public LinearProbingLongST() {
+        this(16);
+    }
+
+    // create linear probing hash table of the given capacity, rounded up to a power of two
+    @SuppressWarnings("unchecked")
+    public LinearProbingLongST(int capacity) {
+        M = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        keys = new long[M];
+        vals = (Value[]) new Object[M];
+    }
+
+   /**
+     * Return the key for the pair (v, w) of ints.
+     */
+    public static long pack(int v, int w) {
+        return ((long) v << 32) | (w & 0xffffffffL);
+    }
+
+    // return the number of key-value pairs in the symbol table
+    public int size() {
+        return N;
+    }
+
+    // is the symbol table empty?
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    // does a key-value pair with the given key exist in the symbol table?
+    public boolean contains(long key) {
+        return get(key) != null;
+    }
+
+    // hash function for keys - returns value between 0 and M-1; the multiply
+    // spreads the vertex numbers in both halves over the top bits
+    private int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & (M - 1);
+    }
+
+    // resize the hash table to the given capacity by re-hashing all of the keys
+    private void resize(int capacity) {
+        LinearProbingLongST<Value> temp = new LinearProbingLongST<Value>(capacity);
+        for (int i = 0; i < M; i++) {
+            if (vals[i] != null) {
+                temp.put(keys[i], vals[i]);
+            }
+        }
+        keys = temp.keys;
+        vals = temp.vals;
+        M    = temp.M;
+    }
+
+    // insert the key-value pair into the symbol table, replacing the old value
+    public void put(long key, Value val) {
+        if (val == null) throw new NullPointerException("value is null");
+
+        // double table size if 50% full
+        if (N >= M/2) resize(2*M);
+
+        int i;
+        for (i = hash(key); vals[i] != null; i = (i + 1) & (M - 1)) {
+            if (keys[i] == key) { vals[i] = val; return; }
+        }
+        keys[i] = key;
+        vals[i] = val;
+        N++;
+    }
+
+    // return the value associated with the given key, null if no such value
+    public Value get(long key) {
+        for (int i = hash(key); vals[i] != null; i = (i + 1) & (M - 1))
+            if (keys[i] == key)
+                return vals[i];
+        return null;
+    }
+
+    // delete the key (and associated value) from the symbol table
+    public void delete(long key) {
+        if (!contains(key)) return;
+
+        // find position i of key
+        int i = hash(key);
+        while (key != keys[i]) {
+            i = (i + 1) & (M - 1);
+        }
+
+        // delete key and associated value
+        vals[i] = null;
+
+        // rehash all keys in same cluster
+        i = (i + 1) & (M - 1);
+        while (vals[i] != null) {
+            // delete keys[i] and vals[i] and reinsert
+            long  keyToRehash = keys[i];
+            Value valToRehash = vals[i];
+            vals[i] = null;
+            N--;
+            put(keyToRehash, valToRehash);
+            i = (i + 1) & (M - 1);
+        }
+
+        N--;
+
+        // halves size of array if it's 12.5% full or less
+        if (N > 0 && N <= M/8) resize(M/2);
+    }
+
+    // integrity check, in time proportional to M, so it is left to main()
+    // rather than asserted after each delete()
+    private boolean check() {
+
+        // check that hash table is at most 50% full
+        if (M < 2*N) {
+            System.err.println("Hash table size M = " + M + "; array size N = " + N);
+            return false;
+        }
+
+        // check that each key in table can be found by get()
+        for (int i = 0; i < M; i++) {
+            if (vals[i] == null) continue;
+            else if (get(keys[i]) != vals[i]) {
+                System.err.println("get[" + keys[i] + "] = " + get(keys[i]) + "; vals[i] = " + vals[i]);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // compare with java.util.HashMap on random operations
+    public static void main(String[] args) {
+        java.util.Random random = new java.util.Random(0);
+        java.util.HashMap<Long, Integer> reference = new java.util.HashMap<Long, Integer>();
+        LinearProbingLongST<Integer> st = new LinearProbingLongST<Integer>();
+        for (int n = 0; n < 1000000; n++) {
+            long key = pack(random.nextInt(1000), random.nextInt(1000));
+            int op = random.nextInt(3);
+            if (op == 0)      { st.put(key, n); reference.put(key, n); }
+            else if (op == 1) { st.delete(key); reference.remove(key); }
+            else if (!java.util.Objects.equals(st.get(key), reference.get(key)))
+                throw new IllegalStateException("get(" + key + ") differs");
+        }
+        if (st.size() != reference.size() || !st.check()) throw new IllegalStateException("table differs");
+        System.out.println(st.size() + " keys, all operations agree");
+    }
+}
@@ -0,0 +1,173 @@
+/*************************************************************************
+ *  Compilation:  javac LivePrimMST.java
+ *  Execution:    java LivePrimMST graph.txt [failures]
+ *  Dependencies: EdgeWeightedDigraph.java GraphSnapshot.java SpanningForest.java DoubleIndexMinPQ.java
+ *                DirectedEdge.java Edge.java Queue.java LazyPrimMSTTrace.java
+ *                CSRDigraph.java GraphFile.java
+ *
+ *  Eager Prim's algorithm on the live network, taking each directed
+ *  edge as undirected, without copying the network.
+ *
+ *************************************************************************/
+
+import java.util.Random;
+
+/**
+ *  The <tt>LivePrimMST</tt> class computes a minimum spanning forest of an
+ *  <tt>EdgeWeightedDigraph</tt> as it stands, taking each edge as
+ *  undirected, by the eager version of Prim's algorithm as in
+ *  <tt>PrimMST</tt>. It reads the digraph's own lists and changes nothing:
+ *  the edges at a vertex are the edges leaving it and the edges entering
+ *  it, both less the parked ones, so the vertices that are down, and every
+ *  edge at them, are left out, and a down vertex is a tree of its own with
+ *  no edges.
+ *  <p>
+ *  A pair of edges u->v and v->u is one undirected edge. The twins are
+ *  merged as they are met: the first seen sets the candidate edge for the
+ *  vertex off the tree, and the second replaces it only if it is strictly
+ *  lighter, so the queue holds at most one entry per vertex and no pair is
+ *  listed twice. Each edge of the forest is listed as an <tt>Edge</tt> from
+ *  the vertex it brought into the tree to the tree vertex it came from.
+ *  When every edge has its twin, as the loader of <tt>Assig5</tt> makes
+ *  them, the edges leaving a vertex are all the edges at it; with
+ *  <tt>undirected</tt> set only those are scanned, as in <tt>PrimMST</tt>.
+ *  <p>
+ *  Besides the forest itself, it takes space proportional to V: the tree
+ *  vertex at the other end of the candidate edge, its weight and a mark
+ *  for each vertex, and a <tt>DoubleIndexMinPQ</tt> of vertices. It takes
+ *  time proportional to E log V in the worst case. The digraph must not
+ *  change while it runs. It runs as well on a <tt>GraphSnapshot</tt>,
+ *  which cannot change, reading the rows the digraph was loaded from slot
+ *  by slot, without making an edge object for each; that is how
+ *  <tt>Assig5</tt> and <tt>QueryServer</tt> run it with <tt>live</tt>, so
+ *  M does not hold up the commands that change the network. Without
+ *  <tt>undirected</tt> it also scans the edges entering each vertex, and
+ *  on a snapshot these are listed from an index, proportional to E, that
+ *  the snapshot builds on first use and keeps.
+ *  <p>
+ *  For additional documentation, see <a href="http://algs4.cs.princeton.edu/43mst">Section 4.3</a> of
+ *  <i>Algorithms, 4th Edition</i> by Robert Sedgewick and Kevin Wayne.
+ */
+public class LivePrimMST implements SpanningForest {
+    private final int[] edgeTo;              // edgeTo[v] = tree vertex of the lightest edge from the tree to v, -1 if none
+    private final double[] distTo;           // distTo[v] = weight of that edge
+    private final boolean[] marked;          // marked[v] = true if v on tree
+    private final DoubleIndexMinPQ pq;       // vertices one edge from the tree
+    private Queue<Edge> mst = new Queue<Edge>();
+    private double weight;
+
+    // compute minimum spanning forest of G
+    public LivePrimMST(EdgeWeightedDigraph G) {
+        this(G, false);
+    }
+
+    // compute minimum spanning forest of G; with undirected set, every edge
+    // must have its twin, and only the edges leaving each vertex are scanned
+    public LivePrimMST(EdgeWeightedDigraph G, boolean undirected) {
+        this((WeightedDigraph) G, undirected);
+    }
+
+    // compute minimum spanning forest of the snapshot G
+    public LivePrimMST(GraphSnapshot G) {
+        this(G, false);
+    }
+
+    // compute minimum spanning forest of the snapshot G, as above
+    public LivePrimMST(GraphSnapshot G, boolean undirected) {
+        this((WeightedDigraph) G, undirected);
+    }
+
+    private LivePrimMST(WeightedDigraph G, boolean undirected) {
+        int V = G.V();
+        edgeTo = new int[V];
+        distTo = new double[V];
+        marked = new boolean[V];
+        for (int v = 0; v < V; v++) {
+            edgeTo[v] = -1;
+            distTo[v] = Double.POSITIVE_INFINITY;
+        }
+        pq = new DoubleIndexMinPQ(V, 4);
+
+        for (int v = 0; v < V; v++)                  // run from each vertex to find
+            if (!marked[v]) prim(G, v, undirected);  // minimum spanning forest
+
+        // check optimality conditions, on a copy of the edges
+        assert LazyPrimMSTTrace.check(this, new CSRDigraph(G));
+    }
+
+    // run Prim's algorithm from s
+    private void prim(WeightedDigraph G, int s, boolean undirected) {
+        GraphSnapshot snapshot = (G instanceof GraphSnapshot) ? (GraphSnapshot) G : null;
+        distTo[s] = 0.0;
+        pq.insert(s, 0.0);
+        while (!pq.isEmpty()) {
+            int v = pq.delMin();
+            marked[v] = true;
+            if (edgeTo[v] >= 0) {
+                mst.enqueue(new Edge(v, edgeTo[v], distTo[v]));
+                weight += distTo[v];
+            }
+            if (snapshot != null) {
+                for (int i = 0, n = snapshot.outdegree(v); i < n; i++)
+                    relax(v, snapshot.head(v, i), snapshot.weight(v, i));
+            }
+            else {
+                for (DirectedEdge f : G.adj(v))
+                    relax(v, f.to(), f.weight());
+            }
+            if (!undirected) {
+                for (DirectedEdge f : into(G, v))
+                    relax(v, f.from(), f.weight());
+            }
+        }
+    }
+
+    // the edges entering v, from either kind of digraph
+    private static Iterable<DirectedEdge> into(WeightedDigraph G, int v) {
+        if (G instanceof GraphSnapshot) return ((GraphSnapshot) G).into(v);
+        return ((EdgeWeightedDigraph) G).into(v);
+    }
+
+    // an edge of weight x joins v, on the tree, to w
+    private void relax(int v, int w, double x) {
+        if (marked[w]) return;               // w is on the tree already, or the edge is a self-loop
+        if (x < distTo[w]) {
+            distTo[w] = x;
+            edgeTo[w] = v;
+            pq.insertOrDecrease(w, x);
+        }
+    }
+
+    // return edges in MST as an Iterable
+    public Iterable<Edge> edges() {
+        return mst;
+    }
+
+    // return weight of MST
+    public double weight() {
+        return weight;
+    }
+
+    // take random vertices down and compare with PrimMST on a copy of what is left
+    public static void main(String[] args) throws Exception {
+        EdgeWeightedDigraph G = GraphFile.read(args[0]);
+        int failures = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        Random random = new Random(0);
+        for (int i = 0; i < failures; i++)
+            G.takeDownVertex(random.nextInt(G.V()));
+
+        for (int round = 0; round < 3; round++) {
+            long t0 = System.nanoTime();
+            LivePrimMST live = new LivePrimMST(G);
+            LivePrimMST taken = new LivePrimMST(G.snapshot(), true);   // the loader adds both directions of every link
+            long t1 = System.nanoTime();
+            PrimMST copied = new PrimMST(new CSRDigraph(G), false);
+            long t2 = System.nanoTime();
+            if (Math.abs(live.weight() - copied.weight()) > 1E-9 * Math.abs(copied.weight())
+             || Math.abs(taken.weight() - copied.weight()) > 1E-9 * Math.abs(copied.weight()))
+                throw new IllegalStateException("weights differ: " + live.weight() + ", " + taken.weight() + " vs " + copied.weight());
+            System.out.printf("live and on a snapshot %.5f in %.1f ms, on a copy %.1f ms%n",
+                              live.weight(), (t1 - t0) / 1e6, (t2 - t1) / 1e6);
+        }
+    }
+}
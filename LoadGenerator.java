@@ -0,0 +1,238 @@
+/*************************************************************************
+ *  Compilation:  javac LoadGenerator.java
+ *  Execution:    java LoadGenerator port clients seconds [limit] [mix]
+ *  Dependencies: QueryServer.java
+ *
+ *  Runs many clients against a QueryServer at once and reports the
+ *  throughput and latency of each command.
+ *
+ *  % java LoadGenerator 5005 32 10 300
+ *  32 clients for 10.0 s on 900 nodes: 10953 commands, 1092.4 per second
+ *  command     count    per sec     p50 ms     p99 ms    p999 ms     max ms
+ *  S            9373      934.8     19.164     78.253   1038.100   1076.002
+ *  ...
+ *
+ *************************************************************************/
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ *  The <tt>LoadGenerator</tt> class opens a number of connections to a
+ *  <tt>QueryServer</tt> on this machine, one thread each, and has every
+ *  client send commands one after the other for a number of seconds, each
+ *  as soon as the reply to the last has arrived. The commands are drawn at
+ *  random from a mix given as percentages, by default
+ *  <tt>S85,P4,K4,C3,D4</tt>, on random pairs of distinct vertices:
+ *  <ul>
+ *  <li> <tt>S a b</tt>
+ *  <li> <tt>P a b limit 100 1</tt>, at most 100 paths in a second
+ *  <li> <tt>K a b 3</tt>
+ *  <li> <tt>C a b w</tt>, with w between 1 and 100
+ *  <li> <tt>D v</tt>, or <tt>U v</tt> for the vertex the client took down last
+ *  <li> <tt>R</tt> and <tt>M</tt>, which print the whole network
+ *  </ul>
+ *  A latency is the time from sending a command to reading the end of its
+ *  reply. At the end the latencies of each command are sorted and reported
+ *  with their count, rate and 50th, 99th and 99.9th percentiles.
+ *  The number of vertices is read from the reply to an R sent first.
+ */
+public class LoadGenerator {
+    private static final String COMMANDS = "SPKCDURM";
+    private static final String PROMPT = "Enter your command";
+
+    private final int port;
+    private final int V;
+    private final double limit;             // the weight limit of P commands
+    private final int[] mix;                // mix[i] = percentage of COMMANDS.charAt(i)
+
+    public LoadGenerator(int port, int V, double limit, int[] mix) {
+        this.port = port;
+        this.V = V;
+        this.limit = limit;
+        this.mix = mix;
+    }
+
+    // one client's latencies, in nanoseconds, by command
+    private class Client extends Thread {
+        final long[][] latencies = new long[COMMANDS.length()][16];
+        final int[] count = new int[COMMANDS.length()];
+        private final long stop;
+        private final Random random;
+        private IOException failure;
+
+        Client(long stop, long seed) {
+            this.stop = stop;
+            random = new Random(seed);
+        }
+
+        public void run() {
+            try {
+                Connection server = new Connection(port);
+                int down = -1;                              // the vertex this client took down
+                while (System.nanoTime() - stop < 0) {
+                    int c = pick();
+                    String command;
+                    int a = random.nextInt(V), b = (a + 1 + random.nextInt(V - 1)) % V;
+                    switch (COMMANDS.charAt(c)) {
+                        case 'S': command = "S " + a + " " + b;                                    break;
+                        case 'P': command = "P " + a + " " + b + " " + limit + " 100 1";           break;
+                        case 'K': command = "K " + a + " " + b + " 3";                             break;
+                        case 'C': command = "C " + a + " " + b + " " + (1 + random.nextInt(100));  break;
+                        case 'R': command = "R";                                                   break;
+                        case 'M': command = "M";                                                   break;
+                        default:
+                            if (down == -1) { command = "D " + a; down = a; }
+                            else            { command = "U " + down; down = -1; c = COMMANDS.indexOf('U'); }
+                    }
+                    long t0 = System.nanoTime();
+                    server.send(command);
+                    long t1 = System.nanoTime();
+                    if (count[c] == latencies[c].length) latencies[c] = Arrays.copyOf(latencies[c], 2 * count[c]);
+                    latencies[c][count[c]++] = t1 - t0;
+                }
+                if (down != -1) server.send("U " + down);
+                server.close();
+            }
+            catch (IOException e) {
+                failure = e;
+            }
+        }
+
+        // index in COMMANDS of a command drawn from the mix; U is never drawn, it follows a D
+        private int pick() {
+            int r = random.nextInt(100);
+            for (int i = 0; i < mix.length; i++) {
+                if (r < mix[i]) return i;
+                r -= mix[i];
+            }
+            return 0;
+        }
+    }
+
+    // a connection to the server, reading the prompt that ends each reply
+    private static class Connection {
+        private final Socket socket;
+        private final BufferedReader in;
+        private final Writer out;
+
+        Connection(int port) throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            socket.setTcpNoDelay(true);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream()));
+            reply(null);
+        }
+
+        // send a command and read its reply
+        void send(String command) throws IOException {
+            ask(command, null);
+        }
+
+        // send a command and return the first line of its reply that starts with prefix
+        String ask(String command, String prefix) throws IOException {
+            out.write(command);
+            out.write('\n');
+            out.flush();
+            return reply(prefix);
+        }
+
+        private String reply(String prefix) throws IOException {
+            String found = null;
+            for (String line = in.readLine(); !PROMPT.equals(line); line = in.readLine()) {
+                if (line == null) throw new EOFException("the server closed the connection");
+                if (found == null && prefix != null && line.startsWith(prefix)) found = line;
+            }
+            return found;
+        }
+
+        void close() throws IOException {
+            out.write("Q\n");
+            out.flush();
+            socket.close();
+        }
+    }
+
+   /**
+     * Run the given number of clients for the given number of seconds and
+     * print what they measured.
+     */
+    public void run(int clients, double seconds) throws Exception {
+        long start = System.nanoTime();
+        long stop = start + (long) (seconds * 1e9);
+        Client[] threads = new Client[clients];
+        for (int i = 0; i < clients; i++) {
+            threads[i] = new Client(stop, i);
+            threads[i].start();
+        }
+        for (Client client : threads) {
+            client.join();
+            if (client.failure != null) throw client.failure;
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        long total = 0;
+        for (Client client : threads)
+            for (int n : client.count) total += n;
+        System.out.printf("%d clients for %.1f s on %d nodes: %d commands, %.1f per second%n",
+                          clients, elapsed, V, total, total / elapsed);
+        System.out.printf("%-8s %8s %10s %10s %10s %10s %10s%n",
+                          "command", "count", "per sec", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        for (int c = 0; c < COMMANDS.length(); c++) {
+            int n = 0;
+            for (Client client : threads) n += client.count[c];
+            if (n == 0) continue;
+            long[] all = new long[n];
+            n = 0;
+            for (Client client : threads) {
+                System.arraycopy(client.latencies[c], 0, all, n, client.count[c]);
+                n += client.count[c];
+            }
+            Arrays.sort(all);
+            System.out.printf("%-8s %8d %10.1f %10.3f %10.3f %10.3f %10.3f%n",
+                              COMMANDS.charAt(c), n, n / elapsed, percentile(all, 0.50) / 1e6,
+                              percentile(all, 0.99) / 1e6, percentile(all, 0.999) / 1e6, all[n - 1] / 1e6);
+        }
+    }
+
+    // the smallest value at least p of the sorted values are no greater than
+    private static long percentile(long[] sorted, double p) {
+        int i = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(i, 0)];
+    }
+
+    // the mix as percentages in the order of COMMANDS, from a list like S85,P4,K4,C3,D4
+    private static int[] mix(String list) {
+        int[] mix = new int[COMMANDS.length()];
+        int sum = 0;
+        for (String item : list.split(",")) {
+            int c = COMMANDS.indexOf(item.charAt(0));
+            if (c == -1 || item.charAt(0) == 'U')
+                throw new IllegalArgumentException("Unknown command " + item.charAt(0) + " in the mix, expected S, P, K, C, D, R or M");
+            mix[c] = Integer.parseInt(item.substring(1));
+            sum += mix[c];
+        }
+        if (sum != 100) throw new IllegalArgumentException("The mix adds up to " + sum + ", not 100");
+        return mix;
+    }
+
+    // java LoadGenerator port clients seconds [limit] [mix]
+    public static void main(String[] args) throws Exception {
+        int port = Integer.parseInt(args[0]);
+        int clients = Integer.parseInt(args[1]);
+        double seconds = Double.parseDouble(args[2]);
+        double limit = (args.length > 3) ? Double.parseDouble(args[3]) : 1000;
+        int[] mix = mix((args.length > 4) ? args[4] : "S85,P4,K4,C3,D4");
+
+        // "The current active network includes the following V nodes and E edges:"
+        Connection probe = new Connection(port);
+        String status = probe.ask("R", "The current active network");
+        probe.close();
+        int V = Integer.parseInt(status.split(" ")[7]);
+
+        new LoadGenerator(port, V, limit, mix).run(clients, seconds);
+    }
+}
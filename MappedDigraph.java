@@ -0,0 +1,71 @@
+/*************************************************************************
+ *  Compilation:  javac MappedDigraph.java
+ *  Dependencies: FrozenDigraph.java
+ *
+ *  A frozen edge-weighted digraph read in place from a memory-mapped
+ *  file in compressed sparse row form.
+ *
+ *************************************************************************/
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+
+/**
+ *  The <tt>MappedDigraph</tt> class is a network in the binary format of
+ *  <tt>GraphFile</tt>, read straight from the mapping of the file: its
+ *  slots are views of the mapped pages, which are only read in as they are
+ *  touched. It is what an <tt>EdgeWeightedDigraph</tt> is loaded from, and
+ *  what a <tt>CSRDigraph</tt> copies in bulk when the network is frozen;
+ *  the algorithms themselves run on <tt>CSRDigraph</tt>, whose arrays are
+ *  cheaper to read than buffers.
+ *  <p>
+ *  <tt>GraphFile.map()</tt> checks the offsets and targets when it maps the
+ *  file, so every slot read here is in range.
+ */
+public class MappedDigraph implements FrozenDigraph {
+    private final int V;
+    private final int E;
+    private final IntBuffer offsets;     // edges leaving v are in slots offsets[v] .. offsets[v+1]-1
+    private final IntBuffer targets;     // targets[i] = head of the edge in slot i
+    private final DoubleBuffer weights;  // weights[i] = weight of the edge in slot i
+
+    // built by GraphFile.map(), which has checked the buffers
+    MappedDigraph(int V, IntBuffer offsets, IntBuffer targets, DoubleBuffer weights) {
+        this.V = V;
+        this.E = targets.limit();
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    public int V() {
+        return V;
+    }
+
+    public int E() {
+        return E;
+    }
+
+    public int begin(int v) {
+        return offsets.get(v);
+    }
+
+    public int end(int v) {
+        return offsets.get(v + 1);
+    }
+
+    public int target(int i) {
+        return targets.get(i);
+    }
+
+    public double weight(int i) {
+        return weights.get(i);
+    }
+
+    // copy the slots into arrays of V+1, E and E entries, in bulk
+    void copy(int[] offsets, int[] targets, double[] weights) {
+        this.offsets.duplicate().get(offsets);
+        this.targets.duplicate().get(targets);
+        this.weights.duplicate().get(weights);
+    }
+}
@@ -0,0 +1,376 @@
+/*************************************************************************
+ *  Compilation:  javac ParallelPathEnumerator.java
+ *  Execution:    java ParallelPathEnumerator graph.txt start end limit [maxPaths] [seconds]
+ *  Dependencies: EdgeWeightedDigraph.java CSRDigraph.java PathEnumerator.java
+ *                PathVisitor.java
+ *
+ *  Enumerates the simple paths between two vertices whose weight is
+ *  within a limit, splitting the search tree into fork-join tasks.
+ *
+ *************************************************************************/
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ *  The <tt>ParallelPathEnumerator</tt> class finds the same paths as
+ *  <tt>PathEnumerator</tt>, in the same order, using every thread of a
+ *  fork-join pool.
+ *  <p>
+ *  The top <tt>SPLIT_DEPTH</tt> levels of the depth first search are
+ *  expanded into tasks, one per path prefix, which the pool's threads
+ *  steal from one another; below that each task searches its subtree
+ *  sequentially, with a <tt>PathEnumerator</tt> owned by its thread as
+ *  the path stack and bitset. Each task returns its paths, and a parent
+ *  concatenates its children's in edge order, so the result is in the
+ *  order the sequential search would produce. Branches that cannot reach
+ *  the end vertex within the limit are pruned as in <tt>PathEnumerator</tt>,
+ *  with one table of distances to the end shared by every task.
+ *  <p>
+ *  A search can be capped at a number of paths, in which case the result
+ *  holds the first that many in that order. Each task may add only the
+ *  paths the cap leaves after those its parents have already collected
+ *  before it, so a subtree stolen early searches for no more than that,
+ *  and gives up as soon as the paths collected before it fill the cap;
+ *  once they do, a parent drops every task it has left at once, and their
+ *  searches give up at their next check. The children are forked last
+ *  first, so a thread working alone takes them in order and never searches
+ *  past the cap. The search looks for one path more than the cap, so that
+ *  <tt>isCapped()</tt> is true only when there were more paths to find. A
+ *  search can also be given a time limit, in which case the result holds
+ *  what was found before the limit and is marked as expired. Either way
+ *  <tt>isComplete()</tt> is false.
+ *  <p>
+ *  The paths are held until the search ends, so a search without a cap
+ *  could fill the heap: <tt>enumerate(start, end, limit)</tt> stops at
+ *  <tt>MAX_PATHS</tt> paths or after <tt>TIMEOUT_MILLIS</tt>, and no search
+ *  keeps more than <tt>MAX_HELD</tt> paths, whatever its cap. While it runs
+ *  a capped search may hold more paths than its cap, up to about a cap's
+ *  worth for each task running at once: a subtree taken before the ones
+ *  ahead of it finish cannot yet know how many of their paths will be kept.
+ *  <p>
+ *  Several threads may call <tt>enumerate()</tt> at once, as long as none
+ *  changes the digraph meanwhile; their tasks share the pool.
+ */
+public class ParallelPathEnumerator {
+    public static final int SPLIT_DEPTH = 3;        // prefixes up to this many edges become tasks
+    public static final long MAX_PATHS = 100000;    // cap when none is given
+    public static final long TIMEOUT_MILLIS = 60000;    // time limit when none is given
+    public static final long MAX_HELD = Integer.MAX_VALUE - 8;    // most paths a Paths can hold
+
+    private final WeightedDigraph G;
+    private final ForkJoinPool pool;
+    private final ThreadLocal<PathEnumerator> workspaces;
+    private CSRDigraph frozen;                      // the edges of G as of version
+    private CSRDigraph reversed;                    // frozen with every edge reversed
+    private int version;
+
+    public ParallelPathEnumerator(WeightedDigraph G) {
+        this(G, ForkJoinPool.commonPool());
+    }
+
+    public ParallelPathEnumerator(WeightedDigraph G, ForkJoinPool pool) {
+        this.G = G;
+        this.pool = pool;
+        final int V = G.V();
+        workspaces = new ThreadLocal<PathEnumerator>() {
+            protected PathEnumerator initialValue() { return new PathEnumerator(V); }
+        };
+        frozen = new CSRDigraph(G);
+        reversed = frozen.reverse();
+        version = G.version();
+    }
+
+   /**
+     * Return the first <tt>MAX_PATHS</tt> simple paths from start to end of
+     * weight at most limit, stopping after <tt>TIMEOUT_MILLIS</tt>.
+     */
+    public Paths enumerate(int start, int end, double limit) {
+        return enumerate(start, end, limit, MAX_PATHS, TIMEOUT_MILLIS);
+    }
+
+   /**
+     * Return the first maxPaths simple paths from start to end of weight at
+     * most limit, stopping after timeoutMillis milliseconds (0 for no limit).
+     * A cap of <tt>MAX_HELD</tt> or more is taken as one less, since the search
+     * holds one path more than its cap.
+     * @throws java.lang.IndexOutOfBoundsException unless start and end are vertices
+     */
+    public Paths enumerate(int start, int end, double limit, long maxPaths, long timeoutMillis) {
+        if (start < 0 || start >= G.V() || end < 0 || end >= G.V())
+            throw new IndexOutOfBoundsException("vertex " + (start < 0 || start >= G.V() ? start : end) + " is not between 0 and " + (G.V() - 1));
+        CSRDigraph F, R;
+        synchronized (this) {                       // threads may enumerate at once
+            if (version != G.version()) {
+                frozen = new CSRDigraph(G);
+                reversed = frozen.reverse();
+                version = G.version();
+            }
+            F = frozen;
+            R = reversed;
+        }
+        long deadline = (timeoutMillis > 0) ? System.nanoTime() + timeoutMillis * 1000000L : Long.MAX_VALUE;
+        maxPaths = Math.max(0, Math.min(maxPaths, MAX_HELD - 1));
+
+        Paths paths = new Paths();
+        if (start == end) paths.visit(new int[] { start }, 1, 0.0);
+        else {
+            double[] toEnd = PathEnumerator.distancesTo(R, end, limit);
+            if (toEnd[start] == Double.POSITIVE_INFINITY) return paths;
+            Search search = new Search(F, toEnd, end, limit, maxPaths + 1, deadline);    // one more, to tell if the cap cut any off
+            paths = pool.invoke(search.new Task(null, new int[] { start }, 0.0));
+        }
+        if (paths.size() > maxPaths) {
+            paths.truncate((int) maxPaths);
+            paths.capped = true;
+        }
+        return paths;
+    }
+
+    // the parameters shared by the tasks of one enumeration
+    private class Search {
+        final CSRDigraph F;
+        final double[] toEnd;                       // distance to end, for pruning
+        final int end;
+        final double limit;
+        final long maxPaths;
+        final long deadline;
+        final double bound;                         // the limit, allowing for rounding
+
+        Search(CSRDigraph F, double[] toEnd, int end, double limit, long maxPaths, long deadline) {
+            this.F = F;
+            this.toEnd = toEnd;
+            this.end = end;
+            this.limit = limit;
+            this.maxPaths = maxPaths;
+            this.deadline = deadline;
+            bound = PathEnumerator.bound(limit);
+        }
+
+        boolean expired() {
+            return deadline != Long.MAX_VALUE && System.nanoTime() - deadline > 0;
+        }
+
+        // the paths that extend prefix, which does not contain end
+        private class Task extends RecursiveTask<Paths> implements PathEnumerator.Cutoff {
+            private static final long serialVersionUID = 1L;
+            private final Task parent;
+            private final int[] prefix;
+            private final double weight;
+            private volatile boolean dropped;       // earlier paths already fill the cap
+            private volatile long held;             // paths collected so far from this task's parts, in order
+            private Paths found;                    // the paths a leaf has found so far
+
+            Task(Task parent, int[] prefix, double weight) {
+                this.parent = parent;
+                this.prefix = prefix;
+                this.weight = weight;
+            }
+
+            // has this task or one above it been dropped?
+            private boolean isDropped() {
+                for (Task t = this; t != null; t = t.parent)
+                    if (t.dropped) return true;
+                return false;
+            }
+
+            // the most paths this task may add: the cap, less the paths the tasks
+            // above have collected before it; while the tasks before it are still
+            // running this is more than it will be left, never less
+            private long budget() {
+                long budget = maxPaths;
+                for (Task t = this; t.parent != null; t = t.parent)
+                    budget -= t.parent.held;
+                return budget;
+            }
+
+            public boolean reached() {
+                return expired() || isDropped() || (found != null && found.size() >= budget());
+            }
+
+            protected Paths compute() {
+                Paths paths = new Paths();
+                if (isDropped() || budget() <= 0) return paths;
+                if (expired()) {
+                    paths.expired = true;
+                    return paths;
+                }
+                if (prefix.length > SPLIT_DEPTH) {
+                    PathEnumerator workspace = workspaces.get();
+                    found = paths;
+                    workspace.search(F, toEnd, prefix, prefix.length, weight, end, limit, budget(), this, paths);
+                    paths.expired = workspace.stopped() && expired();
+                    return paths;
+                }
+
+                // one part per edge, in order: a path ending here or the task for a longer prefix
+                int v = prefix[prefix.length - 1];
+                Object[] parts = new Object[F.outdegree(v)];
+                int n = 0;
+                for (int i = F.begin(v); i < F.end(v); i++) {
+                    int w = F.target(i);
+                    if (contains(prefix, w)) continue;
+                    double total = weight + F.weight(i);
+                    if (total > limit || total + toEnd[w] > bound) continue;
+                    int[] longer = Arrays.copyOf(prefix, prefix.length + 1);
+                    longer[prefix.length] = w;
+                    if (w == end) {
+                        Paths one = new Paths();
+                        one.visit(longer, longer.length, total);
+                        parts[n++] = one;
+                    }
+                    else parts[n++] = new Task(this, longer, total);
+                }
+
+                // fork the last first, so a thread left to itself runs them in order
+                for (int k = n - 1; k >= 0; k--)
+                    if (parts[k] instanceof Task) ((Task) parts[k]).fork();
+                for (int k = 0; k < n; k++) {
+                    long room = budget();
+                    if (paths.size() >= room) {
+                        // the cap is filled: drop every task left at once, then wait for them to give up
+                        for (int j = k; j < n; j++)
+                            if (parts[j] instanceof Task) ((Task) parts[j]).dropped = true;
+                        for (int j = k; j < n; j++)
+                            if (parts[j] instanceof Task) ((Task) parts[j]).join();
+                        break;
+                    }
+                    Paths part = (parts[k] instanceof Task) ? ((Task) parts[k]).join() : (Paths) parts[k];
+                    paths.append(part, room);
+                    held = paths.size();
+                }
+                return paths;
+            }
+        }
+    }
+
+    private static boolean contains(int[] a, int v) {
+        for (int x : a)
+            if (x == v) return true;
+        return false;
+    }
+
+   /**
+     * The result of an enumeration: paths in the order of the sequential
+     * depth first search, stored in flat primitive arrays.
+     */
+    public static class Paths implements PathVisitor {
+        private int[] vertices = new int[16];       // the paths one after the other
+        private int[] offsets = new int[5];         // path i is vertices[offsets[i] .. offsets[i+1]-1]
+        private double[] weights = new double[4];
+        private int n;                              // at most MAX_HELD, since enumerate() caps it
+        private boolean capped, expired;
+
+        // record a path; this is how the sequential search reports to a task
+        public void visit(int[] path, int length, double weight) {
+            if (n + 1 == weights.length) {
+                weights = Arrays.copyOf(weights, grow(weights.length, n + 2));
+                offsets = Arrays.copyOf(offsets, grow(offsets.length, n + 2));
+            }
+            int at = offsets[n];
+            if ((long) at + length > vertices.length)
+                vertices = Arrays.copyOf(vertices, grow(vertices.length, (long) at + length));
+            System.arraycopy(path, 0, vertices, at, length);
+            weights[n] = weight;
+            offsets[++n] = at + length;
+        }
+
+        // double length, but to no less than needed and no more than an array can hold
+        private static int grow(int length, long needed) {
+            if (needed > MAX_HELD)
+                throw new IllegalStateException("too many paths to hold; give a lower cap");
+            return (int) Math.min(MAX_HELD, Math.max(2L * length, needed));
+        }
+
+        // add the paths of that after these, up to max paths in all
+        private void append(Paths that, long max) {
+            for (int i = 0; i < that.n && n < max; i++) {
+                int from = that.offsets[i];
+                int length = that.offsets[i + 1] - from;
+                visit(Arrays.copyOfRange(that.vertices, from, from + length), length, that.weights[i]);
+            }
+            expired |= that.expired;
+        }
+
+        // keep only the first max paths
+        private void truncate(int max) {
+            if (max < n) n = max;
+        }
+
+       /**
+         * Return the number of paths.
+         */
+        public long size() {
+            return n;
+        }
+
+       /**
+         * Return the vertices of path i, from start to end.
+         */
+        public int[] path(int i) {
+            return Arrays.copyOfRange(vertices, offsets[i], offsets[i + 1]);
+        }
+
+       /**
+         * Return the total weight of path i.
+         */
+        public double weight(int i) {
+            return weights[i];
+        }
+
+       /**
+         * Were all the paths found: neither capped nor cut short by the time limit?
+         */
+        public boolean isComplete() {
+            return !capped && !expired;
+        }
+
+       /**
+         * Did the enumeration stop at the path cap?
+         */
+        public boolean isCapped() {
+            return capped;
+        }
+
+       /**
+         * Did the enumeration stop at the time limit?
+         */
+        public boolean isExpired() {
+            return expired;
+        }
+
+       /**
+         * Hand every path to visitor, in order.
+         */
+        public void replay(PathVisitor visitor) {
+            for (int i = 0; i < n; i++) {
+                int from = offsets[i];
+                visitor.visit(path(i), offsets[i + 1] - from, weights[i]);
+            }
+        }
+    }
+
+    // compare with the sequential enumerator
+    public static void main(String[] args) throws Exception {
+        EdgeWeightedDigraph G = GraphFile.read(args[0]);
+        int start = Integer.parseInt(args[1]);
+        int end = Integer.parseInt(args[2]);
+        double limit = Double.parseDouble(args[3]);
+        long maxPaths = args.length > 4 ? Long.parseLong(args[4]) : Long.MAX_VALUE;
+        long millis = args.length > 5 ? (long) (Double.parseDouble(args[5]) * 1000) : 0;
+
+        long t0 = System.nanoTime();
+        final long[] count = new long[1];
+        new PathEnumerator(G).enumerate(start, end, limit, new PathVisitor() {
+            public void visit(int[] path, int length, double weight) { count[0]++; }
+        });
+        long t1 = System.nanoTime();
+        Paths paths = new ParallelPathEnumerator(G).enumerate(start, end, limit, maxPaths, millis);
+        long t2 = System.nanoTime();
+        System.out.printf("sequential: %d paths in %.1f ms; parallel on %d threads: %d paths in %.1f ms%s%s%n",
+                          count[0], (t1 - t0) / 1e6, ForkJoinPool.commonPool().getParallelism(),
+                          paths.size(), (t2 - t1) / 1e6,
+                          paths.isCapped() ? " (capped)" : "", paths.isExpired() ? " (out of time)" : "");
+    }
+}
@@ -0,0 +1,72 @@
+/*************************************************************************
+ *  Compilation:  javac Path.java
+ *  Dependencies: DirectedEdge.java Stack.java
+ *
+ *  The answer to a point-to-point shortest path query.
+ *
+ *************************************************************************/
+
+/**
+ *  The <tt>Path</tt> class is the immutable result of a <tt>PathEngine</tt>
+ *  query: the edges of a shortest s->t path in order from s, its total
+ *  weight, and the number of vertices the engine settled to find it.
+ *  If t is not reachable from s, <tt>hasPath()</tt> is false,
+ *  <tt>edges()</tt> is null and the weight is infinite, just as with
+ *  <tt>DijkstraSP.pathTo()</tt> and <tt>DijkstraSP.distTo()</tt>.
+ */
+public class Path {
+    private final Stack<DirectedEdge> edges;  // edges from s to t, null if no path
+    private final double weight;              // total weight of the path
+    private final int settled;                // vertices settled by the search
+
+   /**
+     * Create a path from its edges, pushed on the stack from t back to s.
+     */
+    public Path(Stack<DirectedEdge> edges, double weight, int settled) {
+        this.edges = edges;
+        this.weight = weight;
+        this.settled = settled;
+    }
+
+   /**
+     * Create the result of a query whose target is unreachable.
+     */
+    public static Path none(int settled) {
+        return new Path(null, Double.POSITIVE_INFINITY, settled);
+    }
+
+   /**
+     * Is there a path from s to t?
+     */
+    public boolean hasPath() {
+        return edges != null;
+    }
+
+   /**
+     * Return the edges of the path from s to t, or null if there is none.
+     */
+    public Iterable<DirectedEdge> edges() {
+        return edges;
+    }
+
+   /**
+     * Return the total weight of the path, infinite if there is none.
+     */
+    public double weight() {
+        return weight;
+    }
+
+   /**
+     * Return the number of vertices the search settled before it could stop.
+     */
+    public int settled() {
+        return settled;
+    }
+
+   /**
+     * Return the edges of the path, as printed by the S command.
+     */
+    public String toString() {
+        return hasPath() ? edges.toString() : "no path";
+    }
+}
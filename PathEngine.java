@@ -0,0 +1,25 @@
+/*************************************************************************
+ *  Compilation:  javac PathEngine.java
+ *  Dependencies: Path.java
+ *
+ *  A point-to-point shortest path query engine.
+ *
+ *************************************************************************/
+
+/**
+ *  The <tt>PathEngine</tt> interface is implemented by the algorithms that
+ *  can answer the <tt>S start end</tt> command of <tt>Assig5</tt>. An engine
+ *  is built once for a network and then answers any number of queries;
+ *  every engine returns a shortest path of the same weight, although among
+ *  paths of equal weight they may pick different ones.
+ *  <p>
+ *  Engines are not thread-safe: each keeps per-query workspace that is
+ *  reused from one query to the next.
+ */
+public interface PathEngine {
+
+   /**
+     * Return a shortest path from s to t.
+     */
+    public Path query(int s, int t);
+}
@@ -0,0 +1,223 @@
+/*************************************************************************
+ *  Compilation:  javac PathEnumerator.java
+ *  Execution:    java PathEnumerator graph.txt start end limit
+ *  Dependencies: EdgeWeightedDigraph.java CSRDigraph.java PathVisitor.java
+ *                DoubleIndexMinPQ.java GraphFile.java
+ *
+ *  Enumerates the simple paths between two vertices whose weight is
+ *  within a limit, without allocating per step, pruning the branches
+ *  that cannot reach the end vertex within the limit.
+ *
+ *************************************************************************/
+
+import java.util.Arrays;
+
+/**
+ *  The <tt>PathEnumerator</tt> class finds every simple path from a start
+ *  vertex to an end vertex whose total weight is at most a limit, by depth
+ *  first search in <tt>adj()</tt> order, and hands each one to a
+ *  <tt>PathVisitor</tt>. A branch is abandoned as soon as its weight
+ *  exceeds the limit, and a path ends at the first visit to the end vertex.
+ *  <p>
+ *  Before searching, a Dijkstra search of the reversed graph from the end
+ *  vertex, stopped at the limit, finds how far each vertex is from the end.
+ *  The depth first search then skips an edge to w whenever the weight so
+ *  far plus that distance exceeds the limit, and so never enters a vertex
+ *  that cannot reach the end at all. The distance ignores the vertices
+ *  already on the path, so it is a lower bound and no path is lost; the
+ *  comparison allows for rounding in weights that are not integers, so a
+ *  path is only ever dropped by the exact test on its own weight. The
+ *  search then spends its time on branches that lead to paths, rather than
+ *  on every branch within the limit.
+ *  <p>
+ *  The search is iterative and touches only primitive arrays sized once
+ *  per graph: the vertices on the current path in an <tt>int[]</tt> stack,
+ *  the next slot to try at each depth, the running weight at each depth,
+ *  and the vertices on the path in a bitset, so testing whether a vertex
+ *  is already on the path takes constant time. The edges are read from a
+ *  <tt>CSRDigraph</tt> copy of the graph, rebuilt only when
+ *  <tt>G.version()</tt> shows that the graph has changed.
+ *  <p>
+ *  <tt>ParallelPathEnumerator</tt> uses one enumerator per thread as the
+ *  workspace for the subtrees it hands out, through <tt>search()</tt>,
+ *  which starts from a given path prefix and can stop early.
+ */
+public class PathEnumerator {
+    private static final double SLACK = 1e-9;   // relative allowance for rounding in the distances
+    private WeightedDigraph G;          // null for a bare workspace
+    private CSRDigraph frozen;          // the edges of G as of version
+    private CSRDigraph reversed;        // frozen with every edge reversed
+    private int version;
+    private boolean stopped;            // did the last search stop at its cutoff?
+
+    private final int[] path;           // path[0 .. depth] = vertices on the current path
+    private final int[] next;           // next[d] = next slot of path[d] to try
+    private final double[] weight;      // weight[d] = weight of path[0 .. d]
+    private final long[] onPath;        // bit v is set iff v is on the current path
+
+    public PathEnumerator(WeightedDigraph G) {
+        this(G.V());
+        this.G = G;
+        frozen = new CSRDigraph(G);
+        reversed = frozen.reverse();
+        version = G.version();
+    }
+
+    // workspace only, for searches on a digraph of V vertices given to search()
+    PathEnumerator(int V) {
+        path = new int[V + 1];
+        next = new int[V];
+        weight = new double[V];
+        onPath = new long[(V + 63) >>> 6];
+    }
+
+   /**
+     * Call visitor with every simple path from start to end of weight at
+     * most limit, and return their number. If start is end, the one path
+     * is the vertex alone.
+     * @throws java.lang.IndexOutOfBoundsException unless start and end are vertices
+     */
+    public long enumerate(int start, int end, double limit, PathVisitor visitor) {
+        if (start < 0 || start >= G.V() || end < 0 || end >= G.V())
+            throw new IndexOutOfBoundsException("vertex " + (start < 0 || start >= G.V() ? start : end) + " is not between 0 and " + (G.V() - 1));
+        if (version != G.version()) {
+            frozen = new CSRDigraph(G);
+            reversed = frozen.reverse();
+            version = G.version();
+        }
+
+        if (start == end) {
+            path[0] = start;
+            visitor.visit(path, 1, 0.0);
+            return 1;
+        }
+        double[] toEnd = distancesTo(reversed, end, limit);
+        if (toEnd[start] == Double.POSITIVE_INFINITY) return 0;
+        return search(frozen, toEnd, new int[] { start }, 1, 0.0, end, limit, Long.MAX_VALUE, null, visitor);
+    }
+
+    // Return the distance from each vertex to end, given the reverse R of the digraph,
+    // infinite for the vertices that are farther than bound(limit) or cannot reach end.
+    static double[] distancesTo(CSRDigraph R, int end, double limit) {
+        double bound = bound(limit);
+        double[] dist = new double[R.V()];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        DoubleIndexMinPQ pq = new DoubleIndexMinPQ(R.V());
+        dist[end] = 0.0;
+        pq.insert(end, 0.0);
+        while (!pq.isEmpty() && pq.minKey() <= bound) {
+            int v = pq.delMin();
+            for (int i = R.begin(v); i < R.end(v); i++) {
+                int w = R.target(i);
+                double d = dist[v] + R.weight(i);
+                if (d < dist[w]) {
+                    dist[w] = d;
+                    pq.insertOrDecrease(w, d);
+                }
+            }
+        }
+        // vertices left on the queue were reached, but not within the bound
+        while (!pq.isEmpty())
+            dist[pq.delMin()] = Double.POSITIVE_INFINITY;
+        return dist;
+    }
+
+    // the weight a path may appear to have through the distances and still be within limit
+    static double bound(double limit) {
+        return limit + SLACK * Math.abs(limit);
+    }
+
+    // tells a search when to give up; polled every 1024 steps
+    interface Cutoff {
+        boolean reached();
+    }
+
+    // Depth-first search of F from the simple path prefix[0 .. length-1] of weight
+    // prefixWeight, which must not contain end, pruned with the distances toEnd.
+    // Stops after maxPaths paths, or once cutoff is reached (null for never); see stopped().
+    long search(CSRDigraph F, double[] toEnd, int[] prefix, int length, double prefixWeight, int end,
+                double limit, long maxPaths, Cutoff cutoff, PathVisitor visitor) {
+        stopped = false;
+        double bound = bound(limit);
+        for (int d = 0; d < length; d++) {
+            path[d] = prefix[d];
+            mark(prefix[d]);
+        }
+        int base = length - 1;
+        int depth = base;
+        next[depth] = F.begin(path[depth]);
+        weight[depth] = prefixWeight;
+
+        long paths = 0;
+        int steps = 0;
+        while (depth >= base && paths < maxPaths) {
+            if ((++steps & 1023) == 0 && cutoff != null && cutoff.reached()) {
+                stopped = true;
+                break;
+            }
+            int v = path[depth];
+            if (next[depth] == F.end(v)) {             // every edge of v tried
+                unmark(v);
+                depth--;
+                continue;
+            }
+            int i = next[depth]++;
+            int w = F.target(i);
+            if (isMarked(w)) continue;
+            double total = weight[depth] + F.weight(i);
+            if (total > limit) continue;
+            if (total + toEnd[w] > bound) continue;     // cannot reach end within the limit
+            path[depth + 1] = w;
+            if (w == end) {
+                visitor.visit(path, depth + 2, total);
+                paths++;
+                continue;
+            }
+            depth++;
+            next[depth] = F.begin(w);
+            weight[depth] = total;
+            mark(w);
+        }
+
+        // leave the bitset clear for the next search
+        for (int d = 0; d <= depth; d++)
+            unmark(path[d]);
+        return paths;
+    }
+
+    // did the last search stop at its cutoff?
+    boolean stopped() {
+        return stopped;
+    }
+
+    private void mark(int v) {
+        onPath[v >>> 6] |= 1L << v;
+    }
+
+    private void unmark(int v) {
+        onPath[v >>> 6] &= ~(1L << v);
+    }
+
+    private boolean isMarked(int v) {
+        return (onPath[v >>> 6] & (1L << v)) != 0;
+    }
+
+    // count the paths and report the rate
+    public static void main(String[] args) throws Exception {
+        EdgeWeightedDigraph G = GraphFile.read(args[0]);
+        int start = Integer.parseInt(args[1]);
+        int end = Integer.parseInt(args[2]);
+        double limit = Double.parseDouble(args[3]);
+        PathEnumerator enumerator = new PathEnumerator(G);
+        final long[] length = new long[1];
+        long t0 = System.nanoTime();
+        long paths = enumerator.enumerate(start, end, limit, new PathVisitor() {
+            public void visit(int[] path, int n, double weight) {
+                length[0] += n - 1;
+            }
+        });
+        double ms = (System.nanoTime() - t0) / 1e6;
+        System.out.printf("%d paths from %d to %d within %.1f, %.1f edges on average, in %.1f ms (%.0f paths/s)%n",
+                          paths, start, end, limit, paths == 0 ? 0.0 : (double) length[0] / paths, ms, paths / ms * 1000);
+    }
+}
@@ -0,0 +1,22 @@
+/*************************************************************************
+ *  Compilation:  javac PathVisitor.java
+ *
+ *  Receives the paths found by a path enumeration.
+ *
+ *************************************************************************/
+
+/**
+ *  The <tt>PathVisitor</tt> interface is called by <tt>PathEnumerator</tt>
+ *  once for every path it finds. The vertices of the path are
+ *  path[0 .. length-1], from the start vertex to the end vertex.
+ *  <p>
+ *  The array belongs to the enumerator and is overwritten as soon as the
+ *  call returns; a visitor that keeps a path must copy it.
+ */
+public interface PathVisitor {
+
+   /**
+     * Receive the path path[0 .. length-1] of total weight weight.
+     */
+    public void visit(int[] path, int length, double weight);
+}
@@ -0,0 +1,95 @@
+/*************************************************************************
+ *  Compilation:  javac PointToPointSP.java
+ *  Execution:    java PointToPointSP
+ *  Dependencies: WeightedDigraph.java DoubleIndexMinPQ.java Path.java
+ *                PathEngine.java Stack.java DirectedEdge.java
+ *
+ *  Dijkstra's algorithm, stopped as soon as the target is settled.
+ *  Assumes all weights are nonnegative.
+ *
+ *************************************************************************/
+
+import java.util.Arrays;
+
+/**
+ *  The <tt>PointToPointSP</tt> class answers single s->t shortest path queries
+ *  with Dijkstra's algorithm, stopping as soon as t is removed from the
+ *  priority queue: at that point distTo[t] is final, and so is every edge
+ *  on the path to it. Only the vertices closer to s than t are settled.
+ *  <p>
+ *  The search relaxes edges in the same order as <tt>DijkstraSP</tt>, so it
+ *  returns the same path that <tt>DijkstraSP.pathTo(t)</tt> would.
+ *  <p>
+ *  The distTo[] and edgeTo[] arrays are kept between queries and marked
+ *  with the number of the query that last wrote them, so a query costs
+ *  time proportional to the part of the graph it explores, not to V.
+ *  The graph is read afresh on every query, so changes made to it with
+ *  <tt>changeEdge</tt>, <tt>takeDownVertex</tt> and <tt>restoreVertex</tt>
+ *  are seen by the next query. <tt>query(H, s, t)</tt> searches another
+ *  digraph on the same vertices instead, such as a <tt>GraphSnapshot</tt>
+ *  of G, with the same arrays.
+ */
+public class PointToPointSP implements PathEngine {
+    private final WeightedDigraph G;
+    private final double[] distTo;          // distTo[v] = distance of shortest s->v path found so far
+    private final DirectedEdge[] edgeTo;    // edgeTo[v] = last edge on that path
+    private final int[] visited;            // distTo[v] and edgeTo[v] are valid iff visited[v] == query
+    private final DoubleIndexMinPQ pq;      // priority queue of vertices
+    private int query;                      // number of the current query
+
+    public PointToPointSP(WeightedDigraph G) {
+        this.G = G;
+        distTo = new double[G.V()];
+        edgeTo = new DirectedEdge[G.V()];
+        visited = new int[G.V()];
+        pq = new DoubleIndexMinPQ(G.V());
+    }
+
+    // shortest path from s to t, stopping once t is settled
+    public Path query(int s, int t) {
+        return query(G, s, t);
+    }
+
+    // shortest path from s to t in H, which has the same vertices as G
+    public Path query(WeightedDigraph H, int s, int t) {
+        if (H.V() != G.V())
+            throw new IllegalArgumentException("digraph has " + H.V() + " vertices, expected " + G.V());
+        if (s < 0 || s >= G.V() || t < 0 || t >= G.V())
+            throw new IndexOutOfBoundsException("vertex " + (s < 0 || s >= G.V() ? s : t) + " is not between 0 and " + (G.V() - 1));
+
+        if (query == Integer.MAX_VALUE) {     // wrap around without mistaking old marks for new
+            Arrays.fill(visited, 0);
+            query = 0;
+        }
+        query++;
+        pq.clear();
+        int settled = 0;
+        reach(s, 0.0, null);
+        pq.insert(s, 0.0);
+        while (!pq.isEmpty()) {
+            int v = pq.delMin();
+            settled++;
+            if (v == t) break;
+            for (DirectedEdge e : H.adj(v)) {
+                int w = e.to();
+                double dist = distTo[v] + e.weight();
+                if (visited[w] != query || distTo[w] > dist) {
+                    reach(w, dist, e);
+                    pq.insertOrDecrease(w, dist);
+                }
+            }
+        }
+
+        if (visited[t] != query) return Path.none(settled);
+        Stack<DirectedEdge> path = new Stack<DirectedEdge>();
+        for (DirectedEdge e = edgeTo[t]; e != null; e = edgeTo[e.from()])
+            path.push(e);
+        return new Path(path, distTo[t], settled);
+    }
+
+    private void reach(int v, double dist, DirectedEdge e) {
+        visited[v] = query;
+        distTo[v] = dist;
+        edgeTo[v] = e;
+    }
+}
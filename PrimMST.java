@@ -0,0 +1,196 @@
+/*************************************************************************
+ *  Compilation:  javac PrimMST.java
+ *  Execution:    java PrimMST graph.txt
+ *  Dependencies: CSRDigraph.java SpanningForest.java DoubleIndexMinPQ.java
+ *                Edge.java Queue.java LazyPrimMSTTrace.java KruskalMST.java
+ *                GraphFile.java
+ *
+ *  Eager Prim's algorithm to compute a minimum spanning forest, with an
+ *  indexed priority queue for sparse networks and an array scan for
+ *  dense ones.
+ *
+ *************************************************************************/
+
+/**
+ *  The <tt>PrimMST</tt> class computes a minimum spanning forest of a
+ *  <tt>CSRDigraph</tt>, taking the edge in each slot as undirected, by the
+ *  eager version of Prim's algorithm. Where <tt>LazyPrimMSTTrace</tt> puts
+ *  every edge that crosses the cut on its queue and throws away the stale
+ *  ones later, this keeps for each vertex not yet on the tree only the
+ *  lightest edge joining it to the tree, so the queue holds at most V
+ *  entries and a better edge lowers a key rather than adding one.
+ *  <p>
+ *  The edges at a vertex are the slots leaving it in the digraph and in its
+ *  reverse, so an edge stored in one direction only is seen from both ends.
+ *  When the digraph is undirected, every u->v has a twin v->u of the same
+ *  weight, so the slots leaving a vertex already hold all its edges and the
+ *  reverse, which takes as much space as the digraph, is not built; this is
+ *  how <tt>Assig5</tt> loads its networks.
+ *  <p>
+ *  The forest is grown from vertex 0, and from the lowest vertex left
+ *  whenever a tree is finished; its edges are listed in the order their
+ *  vertices join it. In the dense mode, of the vertices as close to the
+ *  tree, the lowest is taken first.
+ *  <p>
+ *  In the sparse mode the candidates are on a <tt>DoubleIndexMinPQ</tt>,
+ *  and the algorithm takes time proportional to E log V in the worst case.
+ *  In the dense mode the lightest candidate is found by scanning an array
+ *  of V distances, which takes time proportional to V<sup>2</sup> + E in
+ *  every case, with no heap at all; that is linear in the number of edges
+ *  when there are about V<sup>2</sup> of them. The one-argument constructor
+ *  chooses the mode with <tt>isDense()</tt>.
+ *  <p>
+ *  For additional documentation, see <a href="http://algs4.cs.princeton.edu/43mst">Section 4.3</a> of
+ *  <i>Algorithms, 4th Edition</i> by Robert Sedgewick and Kevin Wayne.
+ */
+public class PrimMST implements SpanningForest {
+    private final CSRDigraph G, R;      // the digraph and its reverse, null if undirected
+    private final int[] edgeTo;         // edgeTo[v] = tree vertex of the lightest edge to v, -1 if none
+    private final double[] distTo;      // distTo[v] = weight of that edge
+    private final boolean[] marked;     // marked[v] = true if v on tree
+    private DoubleIndexMinPQ pq;        // vertices one edge from the tree, sparse mode only
+    private Queue<Edge> mst = new Queue<Edge>();
+    private double weight;
+
+   /**
+     * Compute a minimum spanning forest of G, in the mode <tt>isDense()</tt> picks.
+     */
+    public PrimMST(CSRDigraph G) {
+        this(G, isDense(G.V(), G.E()));
+    }
+
+   /**
+     * Compute a minimum spanning forest of G, scanning an array if dense
+     * and using a priority queue if not.
+     */
+    public PrimMST(CSRDigraph G, boolean dense) {
+        this(G, dense, false);
+    }
+
+   /**
+     * Compute a minimum spanning forest of G, scanning an array if dense
+     * and using a priority queue if not, without the reverse of G if every
+     * edge of G has a twin of the same weight.
+     */
+    public PrimMST(CSRDigraph G, boolean dense, boolean undirected) {
+        this.G = G;
+        R = undirected ? null : G.reverse();
+        int V = G.V();
+        edgeTo = new int[V];
+        distTo = new double[V];
+        marked = new boolean[V];
+        for (int v = 0; v < V; v++) {
+            edgeTo[v] = -1;
+            distTo[v] = Double.POSITIVE_INFINITY;
+        }
+
+        if (dense) scan();
+        else {
+            pq = new DoubleIndexMinPQ(V, 4);
+            for (int v = 0; v < V; v++)      // run from each vertex to find
+                if (!marked[v]) prim(v);     // minimum spanning forest
+        }
+
+        // check optimality conditions
+        assert LazyPrimMSTTrace.check(this, G);
+    }
+
+   /**
+     * Is a digraph with V vertices and E edges dense enough that the array
+     * scan is faster than the priority queue? True if the average vertex has
+     * edges to at least a quarter of the others.
+     */
+    public static boolean isDense(int V, long E) {
+        return E >= (long) V * (V - 1) / 4;
+    }
+
+    // run Prim's algorithm from s, with the priority queue
+    private void prim(int s) {
+        distTo[s] = 0.0;
+        pq.insert(s, 0.0);
+        while (!pq.isEmpty())
+            visit(pq.delMin());
+    }
+
+    // run Prim's algorithm from every vertex, finding the next one by scanning
+    // the vertices not yet on the tree, which are kept together at the front of left
+    // in no order; of those as close, the lowest is taken
+    private void scan() {
+        int V = G.V();
+        int[] left = new int[V];
+        for (int v = 0; v < V; v++)
+            left[v] = v;
+        for (int n = V; n > 0; n--) {
+            int min = 0;
+            double best = distTo[left[0]];
+            for (int k = 1; k < n; k++) {
+                double d = distTo[left[k]];
+                if (d < best || (d == best && left[k] < left[min])) { best = d; min = k; }
+            }
+            int v = left[min];
+            left[min] = left[n - 1];
+            visit(v);                       // at infinity, v starts a new tree
+        }
+    }
+
+    // add v to the tree and update the vertices it is one edge from
+    private void visit(int v) {
+        marked[v] = true;
+        if (edgeTo[v] != -1) {
+            mst.enqueue(new Edge(edgeTo[v], v, distTo[v]));
+            weight += distTo[v];
+        }
+        relax(G, v);
+        if (R != null) relax(R, v);
+    }
+
+    private void relax(CSRDigraph F, int v) {
+        for (int i = F.begin(v); i < F.end(v); i++) {
+            int w = F.target(i);
+            if (marked[w]) continue;        // v-w is ineligible
+            double wt = F.weight(i);
+            if (wt < distTo[w]) {
+                distTo[w] = wt;
+                edgeTo[w] = v;
+                if (pq != null) pq.insertOrDecrease(w, wt);
+            }
+        }
+    }
+
+    // return edges in MST as an Iterable
+    public Iterable<Edge> edges() {
+        return mst;
+    }
+
+    // return weight of MST
+    public double weight() {
+        return weight;
+    }
+
+    // compare the modes with Kruskal on the same network; the array scan is
+    // left out on large sparse networks, where it would take minutes. The
+    // queue is timed again without the reverse, for the undirected networks
+    // that GraphFile reads from text
+    public static void main(String[] args) throws Exception {
+        CSRDigraph G = new CSRDigraph(GraphFile.read(args[0]));
+        boolean dense = isDense(G.V(), G.E());
+        System.out.printf("%d vertices, %d edges, %s%n", G.V(), G.E(), dense ? "dense" : "sparse");
+        for (int round = 0; round < 2; round++) {
+            long t0 = System.nanoTime();
+            PrimMST heap = new PrimMST(G, false);
+            long t1 = System.nanoTime();
+            System.out.printf("queue %.5f in %.1f ms", heap.weight(), (t1 - t0) / 1e6);
+            t1 = System.nanoTime();
+            PrimMST twins = new PrimMST(G, false, true);
+            System.out.printf(", undirected %.5f in %.1f ms", twins.weight(), (System.nanoTime() - t1) / 1e6);
+            t1 = System.nanoTime();
+            if (dense || G.V() <= 10000) {
+                PrimMST array = new PrimMST(G, true);
+                System.out.printf(", array %.5f in %.1f ms", array.weight(), (System.nanoTime() - t1) / 1e6);
+            }
+            long t2 = System.nanoTime();
+            KruskalMST kruskal = new KruskalMST(G);
+            System.out.printf(", Kruskal %.5f in %.1f ms%n", kruskal.weight(), (System.nanoTime() - t2) / 1e6);
+        }
+    }
+}
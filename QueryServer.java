@@ -0,0 +1,133 @@
+/*************************************************************************
+ *  Compilation:  javac QueryServer.java
+ *  Execution:    java QueryServer graph.txt [port]
+ *  Dependencies: Assig5.java EdgeWeightedDigraph.java GraphFile.java
+ *
+ *  Serves the commands of Assig5 over local TCP connections, all of them
+ *  on one network loaded once.
+ *
+ *  % java QueryServer graph1.txt 5005
+ *  graph1.txt: 6 vertices, 16 edges, 0.00 MB in 35.02 ms (0.00 MB/s, 457 edges/s) on 1 chunks
+ *  Serving 6 nodes and 8 edges on 127.0.0.1:5005
+ *
+ *  % telnet localhost 5005
+ *  Enter your command
+ *  S 0 4
+ *  ...
+ *
+ *************************************************************************/
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ *  The <tt>QueryServer</tt> class loads a network once and lets any number
+ *  of clients run the R, M, S, P, K, D, U and C commands of <tt>Assig5</tt>
+ *  on it, over TCP connections to the loopback address. A client sends one
+ *  command per line and reads back exactly what <tt>Assig5</tt> would print,
+ *  ending with the line <tt>Enter your command</tt>, which the server also
+ *  sends when the client connects; Q closes the connection.
+ *  <p>
+ *  Each connection is served by its own thread, running an <tt>Assig5</tt>
+ *  session with its own <tt>PointToPointSP</tt> for S. No lock is taken:
+ *  the commands that only read the network (R, M, S, P and K) run on a
+ *  <tt>GraphSnapshot</tt> taken when they start, so they run at the same
+ *  time as each other and as the changes, and only D, U and C, which are
+ *  synchronized on the network, wait for one another. A snapshot is taken
+ *  between two changes, so a read sees each change whole or not at all.
+ *  P's searches share the snapshot's path enumerator and the common
+ *  fork-join pool.
+ *  <p>
+ *  Each session prints its commands' answers to a stream of its own, over
+ *  a buffer in memory, and <tt>System.out</tt> is left alone. The reply is
+ *  written to the connection when the command is done, so it goes only to
+ *  the client that asked for it, in one piece, and a client slow to read a
+ *  long reply holds up only its own session.
+ *  <p>
+ *  The connection threads come from a cached pool, so idle threads are
+ *  reused and a thread blocked reading its socket costs no processor.
+ */
+public class QueryServer {
+    private final EdgeWeightedDigraph network;
+    private final ExecutorService connections = Executors.newCachedThreadPool();
+
+    public QueryServer(EdgeWeightedDigraph network) {
+        this.network = network;
+    }
+
+   /**
+     * Accept connections on the given port of the loopback address until
+     * the server socket fails.
+     */
+    public void serve(int port) throws IOException {
+        ServerSocket server = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+        try {
+            while (true) {
+                final Socket socket = server.accept();
+                connections.execute(new Runnable() {
+                    public void run() { session(socket); }
+                });
+            }
+        }
+        finally {
+            server.close();
+            connections.shutdown();
+        }
+    }
+
+    // answer one client's commands until it sends Q or hangs up
+    private void session(Socket socket) {
+        try {
+            socket.setTcpNoDelay(true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            OutputStream client = socket.getOutputStream();
+            ByteArrayOutputStream reply = new ByteArrayOutputStream();
+            PrintStream out = new PrintStream(reply, false);
+            Assig5 session = new Assig5(network);
+
+            out.println("Enter your command");
+            send(out, reply, client);
+            String userInput;
+            while ((userInput = in.readLine()) != null && !userInput.equals("Q")) {
+                try {
+                    session.execute(userInput, out);
+                }
+                catch (RuntimeException e) {    // S and P do not catch bad input themselves
+                    out.println("Operation was not formatted correctly. Please try again");
+                }
+                out.println();
+                out.println("Enter your command");
+                send(out, reply, client);
+            }
+        }
+        catch (IOException e) {
+            // the client went away
+        }
+        finally {
+            try { socket.close(); } catch (IOException e) { }
+        }
+    }
+
+    // write what the command printed to the client, and empty the buffer
+    private static void send(PrintStream out, ByteArrayOutputStream reply, OutputStream client) throws IOException {
+        out.flush();
+        reply.writeTo(client);
+        client.flush();
+        reply.reset();
+    }
+
+    // java QueryServer graph.txt [port]
+    public static void main(String[] args) throws IOException {
+        EdgeWeightedDigraph network = GraphFile.read(args[0], System.out);
+        int port = (args.length > 1) ? Integer.parseInt(args[1]) : 5005;
+
+        System.out.println("Serving " + network.V() + " nodes and " + network.E() / 2 + " edges on "
+                           + InetAddress.getLoopbackAddress().getHostAddress() + ":" + port);
+        System.out.flush();
+        new QueryServer(network).serve(port);
+    }
+}
@@ -0,0 +1,264 @@
+/*************************************************************************
+ *  Compilation:  javac SPTCache.java
+ *  Execution:    java SPTCache graph.txt [queries] [sources]
+ *  Dependencies: EdgeWeightedDigraph.java DijkstraSP.java IntegerSP.java
+ *                ShortestPathTree.java GraphListener.java
+ *                Path.java PathEngine.java Stack.java DirectedEdge.java
+ *                GraphFile.java PointToPointSP.java GraphSnapshot.java
+ *
+ *  A bounded LRU cache of shortest path trees, keyed by source vertex and
+ *  invalidated precisely when the graph changes.
+ *
+ *************************************************************************/
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ *  The <tt>SPTCache</tt> class answers s->t shortest path queries from the
+ *  full shortest path tree of s, computed on the first query from s and
+ *  kept for the queries from s that follow. A tree is built by
+ *  <tt>DijkstraSP</tt>, so a query returns the path the <tt>dijkstra</tt>
+ *  engine of <tt>Assig5</tt> would, ties included.
+ *  <p>
+ *  A cache made with <tt>buckets</tt> set builds its trees with
+ *  <tt>IntegerSP</tt> instead, while every weight in the graph is a
+ *  nonnegative integer; the cache counts the weights that are not integers
+ *  as edges come and go, so the choice costs nothing. Its distances are the
+ *  same, but where two shortest paths tie it may return the other one, so
+ *  it is for callers that need only the weights.
+ *  <p>
+ *  The cache holds as many trees as fit in a byte budget; a tree costs
+ *  about 16 bytes per vertex (distTo[] and edgeTo[]). When it is full, the
+ *  least recently used tree is evicted.
+ *  <p>
+ *  The cache listens to its graph and drops only the trees a change can
+ *  affect: removing an edge, or changing the weight of one, drops the trees
+ *  that use it; adding an edge, or lowering the weight of one, drops the
+ *  trees in which it would shorten the distance to its head. Taking a
+ *  vertex down removes its edges, so it drops exactly the trees that reach
+ *  the vertex; restoring it drops the trees its edges now shorten. Every
+ *  other tree is still a shortest path tree of the changed graph, although
+ *  where several paths tie it may not be the one a fresh
+ *  <tt>DijkstraSP</tt> would pick.
+ */
+public class SPTCache implements PathEngine {
+    private final EdgeWeightedDigraph G;
+    private final int capacity;                        // most trees the budget allows
+    private final boolean buckets;                     // build trees with IntegerSP when the weights allow
+    private final LinkedHashMap<Integer, ShortestPathTree> trees;
+    private int fractional;                            // edges whose weight is not a nonnegative integer
+    private long hits, misses, evictions, invalidations;
+
+   /**
+     * Create a cache for G with a budget of an eighth of the maximum heap,
+     * but no more than 64 MB.
+     */
+    public SPTCache(EdgeWeightedDigraph G) {
+        this(G, Math.min(64L << 20, Runtime.getRuntime().maxMemory() / 8));
+    }
+
+   /**
+     * Create a cache for G holding as many trees as fit in maxBytes, and at least one.
+     */
+    public SPTCache(EdgeWeightedDigraph G, long maxBytes) {
+        this(G, maxBytes, false);
+    }
+
+   /**
+     * Create a cache for G holding as many trees as fit in maxBytes, building
+     * them with <tt>IntegerSP</tt> whenever every weight is a nonnegative
+     * integer if buckets is true.
+     */
+    public SPTCache(EdgeWeightedDigraph G, long maxBytes, boolean buckets) {
+        this.G = G;
+        this.buckets = buckets;
+        this.capacity = (int) Math.max(1, Math.min(Integer.MAX_VALUE, maxBytes / treeBytes(G.V())));
+        this.trees = new LinkedHashMap<Integer, ShortestPathTree>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<Integer, ShortestPathTree> eldest) {
+                if (size() <= capacity) return false;
+                evictions++;
+                return true;
+            }
+        };
+        // counted on a snapshot, which reads the slots of the lists not yet built
+        // rather than building them
+        GraphSnapshot now = G.snapshot();
+        for (int v = 0; v < now.V(); v++)
+            for (int i = 0; i < now.outdegree(v); i++)
+                if (!IntegerSP.isIntegral(now.weight(v, i))) fractional++;
+        G.addListener(new Invalidator());
+    }
+
+   /**
+     * Return an estimate of the bytes held by one shortest path tree on V vertices.
+     */
+    public static long treeBytes(int V) {
+        return 64 + 16L * V;      // object and array headers, a double and a reference per vertex
+    }
+
+   /**
+     * Return the shortest path tree of s, from the cache if it is there.
+     */
+    public ShortestPathTree tree(int s) {
+        if (s < 0 || s >= G.V())
+            throw new IndexOutOfBoundsException("vertex " + s + " is not between 0 and " + (G.V() - 1));
+        ShortestPathTree tree = trees.get(s);
+        if (tree != null) {
+            hits++;
+            return tree;
+        }
+        misses++;
+        tree = (buckets && fractional == 0) ? new IntegerSP(G, s) : new DijkstraSP(G, s);
+        trees.put(s, tree);
+        return tree;
+    }
+
+    // shortest path from s to t; settles no vertices when the tree of s is cached
+    public Path query(int s, int t) {
+        if (t < 0 || t >= G.V())
+            throw new IndexOutOfBoundsException("vertex " + t + " is not between 0 and " + (G.V() - 1));
+        long before = misses;
+        ShortestPathTree tree = tree(s);
+        int settled = (misses == before) ? 0 : reached(tree);
+        if (!tree.hasPathTo(t)) return Path.none(settled);
+        Stack<DirectedEdge> path = new Stack<DirectedEdge>();
+        for (DirectedEdge e = tree.edgeTo(t); e != null; e = tree.edgeTo(e.from()))
+            path.push(e);
+        return new Path(path, tree.distTo(t), settled);
+    }
+
+    // vertices settled by the search that built the tree
+    private int reached(ShortestPathTree tree) {
+        int n = 0;
+        for (int v = 0; v < G.V(); v++)
+            if (tree.hasPathTo(v)) n++;
+        return n;
+    }
+
+   /**
+     * Drop every cached tree.
+     */
+    public void clear() {
+        invalidations += trees.size();
+        trees.clear();
+    }
+
+   /**
+     * Return the number of trees in the cache.
+     */
+    public int size() {
+        return trees.size();
+    }
+
+   /**
+     * Return the most trees the cache will hold.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+   /**
+     * Return the number of lookups answered from the cache.
+     */
+    public long hits() {
+        return hits;
+    }
+
+   /**
+     * Return the number of lookups that had to run Dijkstra.
+     */
+    public long misses() {
+        return misses;
+    }
+
+   /**
+     * Return the number of trees evicted to stay within the budget.
+     */
+    public long evictions() {
+        return evictions;
+    }
+
+   /**
+     * Return the number of trees dropped because the graph changed.
+     */
+    public long invalidations() {
+        return invalidations;
+    }
+
+    public String toString() {
+        return String.format("%d/%d trees, %d hits, %d misses, %d evictions, %d invalidations",
+                             trees.size(), capacity, hits, misses, evictions, invalidations);
+    }
+
+    // drops the trees a change to the graph can affect
+    private class Invalidator implements GraphListener {
+
+        // an added edge matters only if it shortens the path to its head
+        public void edgeAdded(DirectedEdge e) {
+            if (!IntegerSP.isIntegral(e.weight())) fractional++;
+            for (Iterator<ShortestPathTree> it = trees.values().iterator(); it.hasNext(); ) {
+                ShortestPathTree tree = it.next();
+                if (tree.distTo(e.from()) + e.weight() < tree.distTo(e.to())) drop(it);
+            }
+        }
+
+        // a removed edge matters only if the tree uses it
+        public void edgeRemoved(DirectedEdge e) {
+            if (!IntegerSP.isIntegral(e.weight())) fractional--;
+            for (Iterator<ShortestPathTree> it = trees.values().iterator(); it.hasNext(); )
+                if (it.next().edgeTo(e.to()) == e) drop(it);
+        }
+
+        // a tree edge changes the distances below it; any other edge matters only if it now shortens a path
+        public void weightChanged(DirectedEdge e, double oldWeight) {
+            if (!IntegerSP.isIntegral(oldWeight)) fractional--;
+            if (!IntegerSP.isIntegral(e.weight())) fractional++;
+            for (Iterator<ShortestPathTree> it = trees.values().iterator(); it.hasNext(); ) {
+                ShortestPathTree tree = it.next();
+                if (tree.edgeTo(e.to()) == e
+                    || tree.distTo(e.from()) + e.weight() < tree.distTo(e.to())) drop(it);
+            }
+        }
+
+        private void drop(Iterator<ShortestPathTree> it) {
+            it.remove();
+            invalidations++;
+        }
+    }
+
+    // replay random queries from a few sources, with a change every so often
+    public static void main(String[] args) throws Exception {
+        EdgeWeightedDigraph G = GraphFile.read(args[0]);
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+        int sources = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        SPTCache cache = new SPTCache(G);
+        PointToPointSP exact = new PointToPointSP(G);
+        Random random = new Random(0);
+
+        long cached = 0, fresh = 0;
+        for (int i = 0; i < queries; i++) {
+            if (i % 100 == 99) {
+                int v = random.nextInt(G.V());
+                for (DirectedEdge e : G.adj(v)) {
+                    G.changeEdge(e.from(), e.to(), 1 + random.nextInt(100));
+                    break;
+                }
+            }
+            int s = random.nextInt(sources) % G.V(), t = random.nextInt(G.V());
+            long t0 = System.nanoTime();
+            Path p = cache.query(s, t);
+            long t1 = System.nanoTime();
+            Path q = exact.query(s, t);
+            long t2 = System.nanoTime();
+            cached += t1 - t0; fresh += t2 - t1;
+            if (p.weight() != q.weight())
+                System.err.println("mismatch " + s + "->" + t + ": " + p.weight() + " vs " + q.weight());
+        }
+        System.out.println(cache);
+        System.out.printf("cached %.3f ms/query, PointToPointSP %.3f ms/query%n",
+                          cached / 1e6 / queries, fresh / 1e6 / queries);
+    }
+}
@@ -0,0 +1,37 @@
+/*************************************************************************
+ *  Compilation:  javac ShortestPathTree.java
+ *  Dependencies: DirectedEdge.java
+ *
+ *  A single-source shortest path tree.
+ *
+ *************************************************************************/
+
+/**
+ *  The <tt>ShortestPathTree</tt> interface is implemented by the algorithms
+ *  that compute the shortest paths from one source to every vertex:
+ *  <tt>DijkstraSP</tt>, <tt>IntegerSP</tt> and <tt>DynamicSP</tt>.
+ *  Clients that only read the tree can take whichever suits the graph.
+ */
+public interface ShortestPathTree {
+
+   /**
+     * Return the length of the shortest path from the source to v, infinite if none.
+     */
+    public double distTo(int v);
+
+   /**
+     * Is there a path from the source to v?
+     */
+    public boolean hasPathTo(int v);
+
+   /**
+     * Return the last edge on the shortest path from the source to v,
+     * null if v is the source or unreachable.
+     */
+    public DirectedEdge edgeTo(int v);
+
+   /**
+     * Return the shortest path from the source to v, null if there is none.
+     */
+    public Iterable<DirectedEdge> pathTo(int v);
+}
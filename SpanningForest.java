@@ -0,0 +1,28 @@
+/*************************************************************************
+ *  Compilation:  javac SpanningForest.java
+ *  Dependencies: Edge.java
+ *
+ *  A minimum spanning forest.
+ *
+ *************************************************************************/
+
+/**
+ *  The <tt>SpanningForest</tt> interface is implemented by the algorithms
+ *  that can answer the <tt>M</tt> command of <tt>Assig5</tt>. Each computes
+ *  its forest when it is made, taking every edge of the network as
+ *  undirected; all of them find a forest of the same weight, although
+ *  among edges of equal weight they may pick different ones, and they
+ *  list the edges in different orders.
+ */
+public interface SpanningForest {
+
+   /**
+     * Return the edges of the forest.
+     */
+    public Iterable<Edge> edges();
+
+   /**
+     * Return the total weight of the forest.
+     */
+    public double weight();
+}
@@ -3,7 +3,7 @@
  *  Execution:  java UF < input.txt
  *  Dependencies: StdIn.java StdOut.java
  *
- *  Weighted quick-union (without path compression).
+ *  Weighted quick-union with path compression by halving.
  *
  ****************************************************************************/
 
@@ -14,9 +14,13 @@
  *  operations, along with a method for determining the number of
  *  disjoint sets.
  *  <p>
- *  This implementation uses weighted quick union.
+ *  This implementation uses weighted quick union, and <em>find</em>
+ *  halves the path it walks by pointing every other node at its
+ *  grandparent, so later finds from the same nodes are shorter.
  *  Creating a data structure with N objects takes linear time.
- *  Afterwards, all operations are logarithmic worst-case time.
+ *  Afterwards, all operations are logarithmic worst-case time, and a
+ *  sequence of M operations takes time proportional to M times the
+ *  inverse Ackermann function of N, which is at most 4 in practice.
  *  <p>
  *  For additional documentation, see <a href="http://algs4.cs.princeton.edu/15uf">Section 1.5</a> of
  *  <i>Algorithms, 4th Edition</i> by Robert Sedgewick and Kevin Wayne.
@@ -44,8 +48,10 @@ public class UF {
      * Return the id of component corresponding to object p.
      */
     public int find(int p) {
-        while (p != id[p])
+        while (p != id[p]) {
+            id[p] = id[id[p]];    // path halving
             p = id[p];
+        }
         return p;
     }
 
@@ -0,0 +1,47 @@
+/*************************************************************************
+ *  Compilation:  javac WeightedDigraph.java
+ *  Dependencies: DirectedEdge.java
+ *
+ *  The read-only operations of an edge-weighted digraph.
+ *
+ *************************************************************************/
+
+/**
+ *  The <tt>WeightedDigraph</tt> interface is what the shortest path and path
+ *  enumeration algorithms read from a digraph. It is implemented by
+ *  <tt>EdgeWeightedDigraph</tt> and by <tt>GraphView</tt>, which shows an
+ *  <tt>EdgeWeightedDigraph</tt> with some vertices and edges switched off,
+ *  so the same algorithms run on the network and on what-if views of it.
+ */
+public interface WeightedDigraph {
+
+   /**
+     * Return the number of vertices.
+     */
+    public int V();
+
+   /**
+     * Return the number of edges.
+     */
+    public int E();
+
+   /**
+     * Return a number that changes whenever the edges change.
+     */
+    public int version();
+
+   /**
+     * Return the number of edges leaving v.
+     */
+    public int outdegree(int v);
+
+   /**
+     * Return the edges leaving v.
+     */
+    public Iterable<DirectedEdge> adj(int v);
+
+   /**
+     * Return every edge.
+     */
+    public Iterable<DirectedEdge> edges();
+}
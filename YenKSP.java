@@ -0,0 +1,241 @@
+/*************************************************************************
+ *  Compilation:  javac YenKSP.java
+ *  Execution:    java YenKSP graph.txt start end k
+ *  Dependencies: EdgeWeightedDigraph.java CSRDigraph.java DoubleIndexMinPQ.java
+ *                MinPQ.java Path.java Stack.java DirectedEdge.java GraphFile.java
+ *
+ *  The k shortest simple paths between two vertices, in increasing order
+ *  of weight, by Yen's algorithm. Paths are produced one at a time.
+ *
+ *************************************************************************/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ *  The <tt>YenKSP</tt> class iterates over the simple paths from s to t in
+ *  increasing order of weight, so the first k calls to <tt>next()</tt>
+ *  return the k shortest loopless paths. Each path is found only when it is
+ *  asked for, and a caller may stop at any point.
+ *  <p>
+ *  Every path after the first is a deviation from one already returned: it
+ *  follows that path's first i edges (the root) and then leaves it at the
+ *  i-th vertex (the spur) along the shortest path that avoids the root's
+ *  other vertices and every edge by which a returned path with the same
+ *  root left the spur. These candidates wait on a priority queue, and each
+ *  call to <tt>next()</tt> returns the lightest. As in Lawler's refinement
+ *  of Yen's algorithm, a path only spawns spurs from the vertex at which it
+ *  left its own parent onwards, since the spurs before that were taken when
+ *  the parent was returned; the root and the ban list of those earlier
+ *  spurs would be the same, so their shortest spur paths are reused rather
+ *  than searched for again.
+ *  <p>
+ *  Each spur path is a Dijkstra search, stopped when t is settled, on a
+ *  <tt>CSRDigraph</tt> copy of the graph taken when the iterator is made;
+ *  changes to the graph after that are not seen. Edges are banned by slot,
+ *  so parallel edges are told apart. The arrays the searches use are sized
+ *  once and marked with the number of the search that last wrote them, as
+ *  in <tt>PointToPointSP</tt>. Ties in weight are broken by the order in
+ *  which the candidates were found.
+ */
+public class YenKSP implements Iterator<Path> {
+    private final CSRDigraph F;
+    private final int s, t;
+
+    private final double[] distTo;          // distTo[v] = distance from the spur found so far
+    private final int[] slotTo;             // slotTo[v] = slot of the last edge on that path
+    private final int[] prev;               // prev[v] = the vertex that edge leaves
+    private final int[] reached;            // distTo[v] and slotTo[v] are valid iff reached[v] == search
+    private final int[] bannedVertex;       // v is off limits iff bannedVertex[v] == search
+    private final int[] bannedSlot;         // slot i is off limits iff bannedSlot[i] == search
+    private final DoubleIndexMinPQ pq;
+    private int search;                     // number of the current spur search
+    private int settled;                    // vertices settled since the last path was returned
+
+    private final ArrayList<int[]> found = new ArrayList<int[]>();     // slots of the paths returned
+    private final MinPQ<Candidate> candidates = new MinPQ<Candidate>();
+    private final HashSet<Candidate> queued = new HashSet<Candidate>(); // to drop duplicate candidates
+    private Candidate last;                 // the path returned last, not yet expanded
+    private boolean started;
+    private long count;                     // candidates found so far, to break ties
+
+    public YenKSP(EdgeWeightedDigraph G, int s, int t) {
+        this(new CSRDigraph(G), s, t);
+    }
+
+    public YenKSP(CSRDigraph F, int s, int t) {
+        if (s < 0 || s >= F.V() || t < 0 || t >= F.V())
+            throw new IndexOutOfBoundsException("vertex " + (s < 0 || s >= F.V() ? s : t) + " is not between 0 and " + (F.V() - 1));
+        this.F = F;
+        this.s = s;
+        this.t = t;
+        distTo = new double[F.V()];
+        slotTo = new int[F.V()];
+        prev = new int[F.V()];
+        reached = new int[F.V()];
+        bannedVertex = new int[F.V()];
+        bannedSlot = new int[F.E()];
+        pq = new DoubleIndexMinPQ(F.V());
+    }
+
+   /**
+     * Is there another simple path from s to t?
+     */
+    public boolean hasNext() {
+        if (!started) {
+            started = true;
+            if (s == t) offer(new int[0], 0);
+            else spur(new int[0], 0);
+        }
+        if (last != null) {
+            // Lawler: spur only from where last left its parent
+            for (int i = last.deviation; i < last.slots.length; i++)
+                spur(last.slots, i);
+            last = null;
+        }
+        return !candidates.isEmpty();
+    }
+
+   /**
+     * Return the next lightest simple path from s to t; its <tt>settled()</tt>
+     * is the number of vertices the searches settled to find it.
+     * @throws java.util.NoSuchElementException if there are no more paths
+     */
+    public Path next() {
+        if (!hasNext()) throw new NoSuchElementException("no more paths from " + s + " to " + t);
+        Candidate best = candidates.delMin();
+        queued.remove(best);
+        found.add(best.slots);
+        last = best;
+
+        Stack<DirectedEdge> path = new Stack<DirectedEdge>();
+        for (int j = best.slots.length - 1; j >= 0; j--)
+            path.push(F.edge(best.slots[j]));
+        Path result = new Path(path, best.weight, settled);
+        settled = 0;
+        return result;
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    // Queue the shortest path that follows the first i edges of path, then leaves it at
+    // its i-th vertex by an edge that no returned path with the same root takes.
+    private void spur(int[] path, int i) {
+        if (search == Integer.MAX_VALUE) {    // wrap around without mistaking old marks for new
+            Arrays.fill(reached, 0);
+            Arrays.fill(bannedVertex, 0);
+            Arrays.fill(bannedSlot, 0);
+            search = 0;
+        }
+        search++;
+
+        int u = s;
+        for (int j = 0; j < i; j++) {
+            bannedVertex[u] = search;
+            u = F.target(path[j]);
+        }
+        for (int[] p : found)
+            if (p.length > i && sameRoot(p, path, i)) bannedSlot[p[i]] = search;
+
+        // Dijkstra from u, stopped once t is settled
+        pq.clear();
+        reached[u] = search;
+        distTo[u] = 0.0;
+        slotTo[u] = -1;
+        prev[u] = -1;
+        pq.insert(u, 0.0);
+        boolean hit = false;
+        while (!pq.isEmpty()) {
+            int v = pq.delMin();
+            settled++;
+            if (v == t) {
+                hit = true;
+                break;
+            }
+            for (int k = F.begin(v); k < F.end(v); k++) {
+                int w = F.target(k);
+                if (bannedSlot[k] == search || bannedVertex[w] == search) continue;
+                double dist = distTo[v] + F.weight(k);
+                if (reached[w] != search || distTo[w] > dist) {
+                    reached[w] = search;
+                    distTo[w] = dist;
+                    slotTo[w] = k;
+                    prev[w] = v;
+                    pq.insertOrDecrease(w, dist);
+                }
+            }
+        }
+        if (!hit) return;
+
+        int n = 0;
+        for (int v = t; v != u; v = prev[v])
+            n++;
+        int[] slots = Arrays.copyOf(path, i + n);
+        for (int v = t, j = i + n - 1; v != u; v = prev[v], j--)
+            slots[j] = slotTo[v];
+        offer(slots, i);
+    }
+
+    private static boolean sameRoot(int[] p, int[] q, int i) {
+        for (int j = 0; j < i; j++)
+            if (p[j] != q[j]) return false;
+        return true;
+    }
+
+    private void offer(int[] slots, int deviation) {
+        double weight = 0.0;
+        for (int slot : slots)
+            weight += F.weight(slot);
+        Candidate c = new Candidate(slots, weight, deviation, count++);
+        if (queued.add(c)) candidates.insert(c);
+    }
+
+    // a path waiting to be returned; equal to another with the same slots
+    private static class Candidate implements Comparable<Candidate> {
+        final int[] slots;
+        final double weight;
+        final int deviation;                // index of the vertex at which it left its parent
+        final long order;
+
+        Candidate(int[] slots, double weight, int deviation, long order) {
+            this.slots = slots;
+            this.weight = weight;
+            this.deviation = deviation;
+            this.order = order;
+        }
+
+        public int compareTo(Candidate that) {
+            if (this.weight < that.weight) return -1;
+            if (this.weight > that.weight) return +1;
+            return Long.compare(this.order, that.order);
+        }
+
+        public boolean equals(Object other) {
+            return other instanceof Candidate && Arrays.equals(slots, ((Candidate) other).slots);
+        }
+
+        public int hashCode() {
+            return Arrays.hashCode(slots);
+        }
+    }
+
+    // print the k shortest paths
+    public static void main(String[] args) throws Exception {
+        EdgeWeightedDigraph G = GraphFile.read(args[0]);
+        int s = Integer.parseInt(args[1]);
+        int t = Integer.parseInt(args[2]);
+        int k = Integer.parseInt(args[3]);
+        YenKSP paths = new YenKSP(G, s, t);
+        long t0 = System.nanoTime();
+        for (int i = 1; i <= k && paths.hasNext(); i++) {
+            Path p = paths.next();
+            System.out.printf("%d: %.2f  %s  (%d settled)%n", i, p.weight(), p, p.settled());
+        }
+        System.out.printf("%.1f ms%n", (System.nanoTime() - t0) / 1e6);
+    }
+}